@@ -0,0 +1,161 @@
+package com.jumper.common.cache.benchmark;
+
+import com.jumper.common.cache.aop.CacheAop;
+import com.jumper.common.cache.aop.CacheNamespace;
+import com.jumper.common.cache.aop.EarlyExpiration;
+import com.jumper.common.cache.aop.RefreshAhead;
+import com.jumper.common.cache.aop.SingleFlight;
+import com.jumper.common.cache.aop.WriteBehind;
+import com.jumper.common.cache.application.CacheProperties;
+import com.jumper.common.cache.bloom.CacheBloomFilters;
+import com.jumper.common.cache.executor.CacheExecutor;
+import com.jumper.common.cache.caffeine.CaffeineConfig;
+import com.jumper.common.cache.caffeine.CaffeineMemoryCacheHandler;
+import com.jumper.common.cache.guava.GuavaConfig;
+import com.jumper.common.cache.guava.GuavaMemoryCacheHandler;
+import com.jumper.common.cache.handler.CacheSizeEstimator;
+import com.jumper.common.cache.handler.ClusterCacheHandler;
+import com.jumper.common.cache.handler.DefaultCacheSizeEstimator;
+import com.jumper.common.cache.handler.MemoryCacheHandler;
+import com.jumper.common.cache.hotkey.HotKeyCache;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import com.jumper.common.cache.offheap.OffHeapConfig;
+import com.jumper.common.cache.offheap.OffHeapMemoryCacheHandler;
+import com.jumper.common.cache.redis.CacheSerializer;
+import com.jumper.common.cache.redis.KryoCacheSerializer;
+import com.jumper.common.cache.tracking.TrackingMemoryCacheHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基准测试的Spring上下文，只注册缓存相关的Bean，二级缓存使用进程内替身
+ */
+@Configuration
+@EnableAspectJAutoProxy(proxyTargetClass = true)
+@Import({GuavaConfig.class, CaffeineConfig.class, OffHeapConfig.class})
+public class BenchmarkConfig {
+
+    /**
+     * 创建基准测试的上下文
+     *
+     * @param memoryType 一级缓存类型
+     * @param rttMicros  二级缓存模拟的网络往返耗时，单位微秒
+     * @return
+     */
+    public static AnnotationConfigApplicationContext createContext(String memoryType, long rttMicros) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jumper.cache.memoryType", memoryType);
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.register(BenchmarkConfig.class);
+        context.registerBean(InMemoryClusterCacheHandler.class, () -> new InMemoryClusterCacheHandler<>(rttMicros));
+        context.refresh();
+        return context;
+    }
+
+    @Bean
+    public CacheProperties cacheProperties() {
+        return new CacheProperties();
+    }
+
+    @Bean
+    public CacheSizeEstimator cacheSizeEstimator() {
+        return new DefaultCacheSizeEstimator();
+    }
+
+
+    @Bean
+    public MemoryCacheHandler memoryCacheHandler(@Value("${jumper.cache.memoryType}") String memoryType) {
+        if ("REDIS_TRACKING".equals(memoryType)) {
+            //失效通知由进程内的二级缓存替身模拟
+            return new TrackingMemoryCacheHandler<>();
+        }
+        if ("OFFHEAP".equals(memoryType)) {
+            return new OffHeapMemoryCacheHandler<>();
+        }
+        return "CAFFEINE".equals(memoryType) ? new CaffeineMemoryCacheHandler<>() : new GuavaMemoryCacheHandler<>();
+    }
+
+    /**
+     * 堆外一级缓存的序列化方式
+     */
+    @Bean
+    public CacheSerializer cacheSerializer() {
+        return new KryoCacheSerializer();
+    }
+
+    @Bean
+    public CacheMetrics cacheMetrics() {
+        return new CacheMetrics(new SimpleMeterRegistry());
+    }
+
+    @Bean
+    public CacheExecutor cacheExecutor(CacheProperties cacheProperties, CacheMetrics cacheMetrics) {
+        return new CacheExecutor(cacheProperties.getExecutorThreads(), cacheProperties.getExecutorQueueSize(),
+                cacheProperties.isExecutorVirtual(), cacheMetrics);
+    }
+
+    @Bean
+    public SingleFlight singleFlight(CacheProperties cacheProperties, CacheMetrics cacheMetrics) {
+        return new SingleFlight(cacheProperties.getSingleFlightTimeout(), cacheMetrics);
+    }
+
+    /**
+     * 基准测试不开启热点key，否则反复读取的key会常驻，l1MissL2Hit测到的是常驻值的命中
+     */
+    @Bean
+    public HotKeyCache hotKeyCache(CacheProperties cacheProperties, CacheMetrics cacheMetrics) {
+        return new HotKeyCache(false, cacheProperties.getHotKeyThreshold(),
+                cacheProperties.getHotKeyTopN(), cacheProperties.getHotKeySketchWidth(), false, cacheMetrics);
+    }
+
+    /**
+     * 基准测试不使用布隆过滤器
+     */
+    @Bean
+    public CacheBloomFilters cacheBloomFilters(CacheExecutor cacheExecutor) {
+        return new CacheBloomFilters(Collections.emptyList(), null, cacheExecutor);
+    }
+
+    @Bean
+    public WriteBehind writeBehind(ClusterCacheHandler clusterCacheHandler, CacheProperties cacheProperties, CacheMetrics cacheMetrics,
+                                   CacheExecutor cacheExecutor) {
+        return new WriteBehind(clusterCacheHandler, cacheMetrics, cacheExecutor, cacheProperties.isWriteBehind(), cacheProperties.getWriteBehindQueueSize(),
+                cacheProperties.getWriteBehindBatchSize(), cacheProperties.getWriteBehindOverflow());
+    }
+
+    @Bean
+    public RefreshAhead refreshAhead(CacheExecutor cacheExecutor, CacheProperties cacheProperties) {
+        return new RefreshAhead(cacheExecutor, cacheProperties.getRefreshQueueSize());
+    }
+
+    @Bean
+    public EarlyExpiration earlyExpiration(CacheProperties cacheProperties) {
+        return new EarlyExpiration(cacheProperties.getMaximumSize());
+    }
+
+    @Bean
+    public CacheNamespace cacheNamespace() {
+        return new CacheNamespace();
+    }
+
+    @Bean
+    public CacheAop cacheAop() {
+        return new CacheAop();
+    }
+
+    @Bean
+    public BenchmarkService benchmarkService() {
+        return new BenchmarkService();
+    }
+}
@@ -0,0 +1,41 @@
+package com.jumper.common.cache.benchmark;
+
+import com.jumper.common.cache.annotation.CacheGet;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+
+/**
+ * 基准测试使用的业务方法，通过consumeCPU模拟加载数据的耗时
+ */
+public class BenchmarkService {
+
+    /**
+     * 模拟加载耗时的CPU消耗量
+     */
+    private volatile long loadTokens;
+
+    public void setLoadTokens(long loadTokens) {
+        this.loadTokens = loadTokens;
+    }
+
+    @CacheGet(key = "'user:' + #id", timeout = 600)
+    public BenchmarkUser getUser(Long id) {
+        return load(id);
+    }
+
+    /**
+     * 不经过缓存切面的同一个方法，用于对比切面本身的开销
+     *
+     * @param id
+     * @return
+     */
+    public BenchmarkUser getUserDirect(Long id) {
+        return load(id);
+    }
+
+    private BenchmarkUser load(Long id) {
+        Blackhole.consumeCPU(loadTokens);
+        return new BenchmarkUser(id, "user-" + id, "1380000" + id, 1, new Date(0));
+    }
+}
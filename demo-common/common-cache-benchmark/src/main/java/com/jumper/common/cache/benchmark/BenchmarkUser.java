@@ -0,0 +1,23 @@
+package com.jumper.common.cache.benchmark;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 基准测试使用的缓存对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BenchmarkUser implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private Long id;
+    private String name;
+    private String mobile;
+    private Integer status;
+    private Date createTime;
+}
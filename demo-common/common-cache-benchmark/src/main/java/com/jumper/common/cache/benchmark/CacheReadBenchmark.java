@@ -0,0 +1,176 @@
+package com.jumper.common.cache.benchmark;
+
+import com.jumper.common.cache.handler.MemoryCacheHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存读取路径的基准测试
+ * <p>
+ * 运行方式：java -jar target/benchmarks.jar CacheReadBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheReadBenchmark {
+
+    /**
+     * 预热的key数量
+     */
+    private static final int KEY_COUNT = 1024;
+
+    /**
+     * 全部未命中时多个线程竞争的同一个key
+     */
+    private static final Long HOT_ID = -1L;
+
+    @Param({"GUAVA", "CAFFEINE", "REDIS_TRACKING", "OFFHEAP"})
+    private String memoryType;
+
+    /**
+     * 二级缓存模拟的网络往返耗时，单位微秒
+     */
+    @Param({"0"})
+    private long rttMicros;
+
+    /**
+     * 模拟加载数据的CPU消耗量
+     */
+    @Param({"1000"})
+    private long loadTokens;
+
+    private AnnotationConfigApplicationContext context;
+
+    private BenchmarkService service;
+
+    private MemoryCacheHandler memoryCacheHandler;
+
+    private InMemoryClusterCacheHandler clusterCacheHandler;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkConfig.createContext(memoryType, rttMicros);
+        service = context.getBean(BenchmarkService.class);
+        service.setLoadTokens(loadTokens);
+        memoryCacheHandler = context.getBean(MemoryCacheHandler.class);
+        clusterCacheHandler = context.getBean(InMemoryClusterCacheHandler.class);
+        for (long id = 0; id < KEY_COUNT; id++) {
+            service.getUser(id);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 每个线程独立的key序号
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private long next;
+
+        Long nextId() {
+            return next++ & (KEY_COUNT - 1);
+        }
+    }
+
+    /**
+     * 不经过缓存切面直接调用目标方法
+     */
+    @Benchmark
+    public Object directCall(Cursor cursor) {
+        return service.getUserDirect(cursor.nextId());
+    }
+
+    /**
+     * 直接读取一级缓存
+     */
+    @Benchmark
+    public Object l1Hit(Cursor cursor) {
+        return memoryCacheHandler.getCache("user:" + cursor.nextId());
+    }
+
+    /**
+     * 经过缓存切面命中一级缓存，与l1Hit的差值即为切面本身的开销
+     */
+    @Benchmark
+    public Object aopL1Hit(Cursor cursor) {
+        return service.getUser(cursor.nextId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object aopL1Hit_8threads(Cursor cursor) {
+        return service.getUser(cursor.nextId());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object aopL1Hit_64threads(Cursor cursor) {
+        return service.getUser(cursor.nextId());
+    }
+
+    /**
+     * 一级缓存未命中、二级缓存命中（包含一次一级缓存的删除）
+     */
+    @Benchmark
+    public Object l1MissL2Hit(Cursor cursor) {
+        Long id = cursor.nextId();
+        memoryCacheHandler.deleteCache("user:" + id);
+        return service.getUser(id);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object l1MissL2Hit_8threads(Cursor cursor) {
+        return l1MissL2Hit(cursor);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object l1MissL2Hit_64threads(Cursor cursor) {
+        return l1MissL2Hit(cursor);
+    }
+
+    /**
+     * 两级缓存都未命中，多线程时竞争同一个key，由单飞加载合并目标方法的调用
+     */
+    @Benchmark
+    public Object fullMissSingleFlight() {
+        memoryCacheHandler.deleteCache("user:" + HOT_ID);
+        clusterCacheHandler.deleteCache("user:" + HOT_ID);
+        return service.getUser(HOT_ID);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object fullMissSingleFlight_8threads() {
+        return fullMissSingleFlight();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object fullMissSingleFlight_64threads() {
+        return fullMissSingleFlight();
+    }
+}
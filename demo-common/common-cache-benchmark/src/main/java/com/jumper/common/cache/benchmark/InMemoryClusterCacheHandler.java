@@ -0,0 +1,238 @@
+package com.jumper.common.cache.benchmark;
+
+import com.jumper.common.cache.handler.ClusterCacheHandler;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.tracking.InvalidationSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内的二级缓存替身，用于离线运行基准测试
+ * <p>
+ * 缓存值按JDK序列化后的字节保存，读取时反序列化，模拟Redis的序列化开销；
+ * 通过rttMicros可以在每次访问时额外模拟网络往返耗时；
+ * 同时模拟Redis的CLIENT TRACKING广播模式，key被修改时同步通知订阅的一级缓存
+ */
+public class InMemoryClusterCacheHandler<K extends Serializable, V> extends ClusterCacheHandler<K, V> implements InvalidationSource {
+
+    private final Map<Object, Entry> store = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    /**
+     * 模拟的网络往返耗时，单位微秒
+     */
+    private final long rttMicros;
+
+    private volatile List<String> prefixes = Collections.emptyList();
+
+    private volatile InvalidationListener listener;
+
+    public InMemoryClusterCacheHandler(long rttMicros) {
+        this.rttMicros = rttMicros;
+    }
+
+    @Override
+    public void subscribe(List<String> prefixes, InvalidationListener listener) {
+        this.prefixes = prefixes;
+        this.listener = listener;
+        listener.invalidateAll();
+        listener.tracking(true);
+    }
+
+    @Override
+    public boolean putCache(K key, V value) {
+        return this.putCache(key, value, -1L, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public boolean putCache(K key, V value, Long timeOut, TimeUnit unit) {
+        roundTrip();
+        long expireAt = timeOut == -1 ? Long.MAX_VALUE : System.currentTimeMillis() + unit.toMillis(timeOut);
+        store.put(key, new Entry(serialize(value), expireAt));
+        invalidate(Collections.singletonList(key));
+        return true;
+    }
+
+    /**
+     * 批量写入只模拟一次网络往返
+     */
+    @Override
+    public boolean putAll(Map<K, V> values, Long timeOut, TimeUnit unit) {
+        roundTrip();
+        long expireAt = timeOut == -1 ? Long.MAX_VALUE : System.currentTimeMillis() + unit.toMillis(timeOut);
+        values.forEach((key, value) -> store.put(key, new Entry(serialize(value), expireAt)));
+        invalidate(values.keySet());
+        return true;
+    }
+
+    @Override
+    public V getCache(K key) {
+        roundTrip();
+        return read(key);
+    }
+
+    /**
+     * 批量读取只模拟一次网络往返
+     */
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        roundTrip();
+        Map<K, V> values = new HashMap<>(keys.size() * 2);
+        for (K key : keys) {
+            V value = read(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    private V read(K key) {
+        Entry entry = store.get(key);
+        if (entry == null || entry.expireAt < System.currentTimeMillis()) {
+            return null;
+        }
+        return (V) deserialize(entry.bytes);
+    }
+
+    @Override
+    public long getExpire(K key) {
+        roundTrip();
+        Entry entry = store.get(key);
+        if (entry == null) {
+            return -2;
+        }
+        return entry.expireAt == Long.MAX_VALUE ? -1 : Math.max(entry.expireAt - System.currentTimeMillis(), -2);
+    }
+
+    @Override
+    public boolean deleteCache(K key) {
+        roundTrip();
+        boolean deleted = store.remove(key) != null;
+        invalidate(Collections.singletonList(key));
+        return deleted;
+    }
+
+    @Override
+    public CompletableFuture<Long> deleteCachePatternAsync(K key) {
+        roundTrip();
+        String pattern = String.valueOf(key);
+        //与Redis的glob一致，只支持前缀匹配
+        String glob = MemoryKeyIndex.toGlob(pattern);
+        String prefix = glob.endsWith("*") ? glob.substring(0, glob.length() - 1) : glob;
+        List<Object> deleted = new ArrayList<>();
+        for (Iterator<Object> iterator = store.keySet().iterator(); iterator.hasNext(); ) {
+            Object next = iterator.next();
+            if (String.valueOf(next).startsWith(prefix)) {
+                iterator.remove();
+                deleted.add(next);
+            }
+        }
+        invalidate(deleted);
+        return CompletableFuture.completedFuture((long) deleted.size());
+    }
+
+    @Override
+    public long getGeneration(String key) {
+        roundTrip();
+        AtomicLong generation = generations.get(key);
+        return generation == null ? 0 : generation.get();
+    }
+
+    @Override
+    public long incrementGeneration(String key) {
+        roundTrip();
+        long generation = generations.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+        invalidate(Collections.singletonList(key));
+        return generation;
+    }
+
+    /**
+     * 清空替身中的数据
+     */
+    public void clear() {
+        store.clear();
+        generations.clear();
+        InvalidationListener listener = this.listener;
+        if (listener != null) {
+            listener.invalidateAll();
+        }
+    }
+
+    /**
+     * 通知订阅了对应前缀的一级缓存
+     *
+     * @param keys
+     */
+    private void invalidate(Collection<?> keys) {
+        InvalidationListener listener = this.listener;
+        if (listener == null || keys.isEmpty()) {
+            return;
+        }
+        List<String> matched = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            String name = String.valueOf(key);
+            if (prefixes.isEmpty() || prefixes.stream().anyMatch(name::startsWith)) {
+                matched.add(name);
+            }
+        }
+        if (!matched.isEmpty()) {
+            listener.invalidate(matched);
+        }
+    }
+
+    private void roundTrip() {
+        if (rttMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rttMicros));
+        }
+    }
+
+    private static byte[] serialize(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return input.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        private final byte[] bytes;
+        private final long expireAt;
+
+        private Entry(byte[] bytes, long expireAt) {
+            this.bytes = bytes;
+            this.expireAt = expireAt;
+        }
+    }
+}
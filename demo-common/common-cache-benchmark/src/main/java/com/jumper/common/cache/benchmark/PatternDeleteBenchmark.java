@@ -0,0 +1,139 @@
+package com.jumper.common.cache.benchmark;
+
+import cn.hutool.core.util.ReUtil;
+import com.google.common.cache.Cache;
+import com.jumper.common.cache.handler.MemoryCacheHandler;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一级缓存按表达式删除的基准测试，每次删除前重新写入全部key
+ * <p>
+ * key的格式为 user:{分组}:{id}，共100个分组，每次删除其中一个分组（1%的key）。
+ * 三种方式匹配同一组key（不包含user:70~user:79），都包含匹配和删除，并且都在当前线程同步执行。
+ * 运行方式：java -jar target/benchmarks.jar PatternDeleteBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatternDeleteBenchmark {
+
+    private static final int GROUPS = 100;
+
+    /**
+     * 可以转换为前缀的表达式
+     */
+    private static final String PREFIX_PATTERN = "^user:7:.*";
+
+    /**
+     * 匹配同一组key、但无法转换为前缀的表达式
+     */
+    private static final String REGEX_PATTERN = "^user:7:\\d+$";
+
+    @Param({"10000", "100000"})
+    private int keyCount;
+
+    @Param({"GUAVA", "CAFFEINE", "OFFHEAP"})
+    private String memoryType;
+
+    private AnnotationConfigApplicationContext context;
+
+    private MemoryCacheHandler memoryCacheHandler;
+
+    private MemoryKeyIndex memoryKeyIndex;
+
+    /**
+     * memoryType为GUAVA时的一级缓存，用于复现原有实现
+     */
+    private Cache<Object, Object> guavaCache;
+
+    private List<String> keys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkConfig.createContext(memoryType, 0);
+        memoryCacheHandler = context.getBean(MemoryCacheHandler.class);
+        memoryKeyIndex = context.getBean(MemoryKeyIndex.class);
+        guavaCache = "GUAVA".equals(memoryType) ? context.getBean(Cache.class) : null;
+        keys = new ArrayList<>(keyCount);
+        for (int i = 0; i < keyCount; i++) {
+            keys.add("user:" + (i % GROUPS) + ":" + i);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        for (String key : keys) {
+            memoryCacheHandler.putCache(key, key, 600L, TimeUnit.SECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 前缀表达式，通过key索引删除
+     */
+    @Benchmark
+    public boolean prefixDelete() {
+        return memoryCacheHandler.deleteCachePattern(PREFIX_PATTERN);
+    }
+
+    /**
+     * 无法转换为前缀的正则表达式，遍历key索引匹配后删除，与deleteCachePattern在缓存线程池中执行的逻辑一致
+     */
+    @Benchmark
+    public int regexDelete() {
+        Collection<Object> matched = memoryKeyIndex.match(REGEX_PATTERN);
+        memoryCacheHandler.deleteCacheBatch(matched);
+        return matched.size();
+    }
+
+    /**
+     * 原有实现：遍历一级缓存中的全部key逐个做正则匹配，再批量删除，作为对比基线。
+     * 原有实现只支持Guava，其余类型遍历各自缓存中的全部数据
+     */
+    @Benchmark
+    public int legacyFullScan() {
+        List<Object> matched = new ArrayList<>();
+        if (guavaCache != null) {
+            guavaCache.asMap().keySet().forEach(cacheKey -> {
+                if (ReUtil.contains(PREFIX_PATTERN, String.valueOf(cacheKey))) {
+                    matched.add(cacheKey);
+                }
+            });
+            guavaCache.invalidateAll(matched);
+        } else {
+            memoryCacheHandler.forEachEntry((key, value, expire) -> {
+                if (ReUtil.contains(PREFIX_PATTERN, String.valueOf(key))) {
+                    matched.add(key);
+                }
+            });
+            memoryCacheHandler.deleteCacheBatch(matched);
+        }
+        return matched.size();
+    }
+}
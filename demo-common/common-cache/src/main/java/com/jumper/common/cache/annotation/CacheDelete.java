@@ -18,6 +18,15 @@ public @interface CacheDelete {
      */
     String[] key() default "";
 
+    /**
+     * 缓存所属的命名空间（支持spel表达式），与CacheGet的namespace对应，
+     * 未指定key时使整个命名空间的缓存失效（递增命名空间的版本号），否则只删除命名空间内指定的key，
+     * key表达式的结果为空时不删除任何缓存；命名空间表达式的结果为空时同样不删除任何缓存
+     *
+     * @return
+     */
+    String namespace() default "";
+
     /**
      * 是否删除所有缓存信息，key参数会失效
      *
@@ -47,7 +56,8 @@ public @interface CacheDelete {
     boolean beforeInvocation() default false;
 
     /**
-     * 是否通过正则表达式删除key
+     * 是否通过正则表达式删除key，按包含匹配，例如 user:7 会匹配 user:70:name；
+     * 以^开头的前缀表达式（如 ^user:7: 、^user:7:.*）在一级缓存中通过索引删除，不需要遍历全部key
      *
      * @return
      */
@@ -18,6 +18,26 @@ public @interface CacheGet {
      */
     String key();
 
+    /**
+     * 缓存名称，用于监控指标的分组，默认为 类名.方法名
+     * @return
+     */
+    String name() default "";
+
+    /**
+     * 缓存所属的命名空间（支持spel表达式），设置后实际的key为 命名空间:版本号:key，
+     * 通过CacheDelete删除整个命名空间时只需递增版本号
+     * @return
+     */
+    String namespace() default "";
+
+    /**
+     * 布隆过滤器名称，对应BloomFilterLoader的name，设置后key表达式的结果（不包含命名空间）一定不存在时直接返回null，
+     * 不再查询缓存和执行目标方法；目标方法返回的数据会写入布隆过滤器
+     * @return
+     */
+    String bloomFilter() default "";
+
     /**
      * 缓存的包含条件（符合该条件的数据会从缓存中查询）
      * @return
@@ -59,4 +79,30 @@ public @interface CacheGet {
      * @return
      */
     TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * 提前刷新时间，缓存剩余过期时间小于该值时直接返回当前缓存，并异步执行目标方法重建缓存，
+     * 单位与unit一致，默认为0不开启
+     * @return
+     */
+    long refreshBefore() default 0;
+
+    /**
+     * 概率提前过期（XFetch）的系数，大于0时开启：根据最近一次执行目标方法的耗时，
+     * 在过期前随机提前异步刷新，重建越慢、越接近过期越容易刷新，1为推荐值，越大越早刷新；默认为0不开启
+     * @return
+     */
+    double earlyExpireBeta() default 0;
+
+    /**
+     * 是否缓存空值，开启后目标方法返回null时缓存一个空值标记，在nullTimeout内直接返回null，避免缓存穿透
+     * @return
+     */
+    boolean cacheNull() default false;
+
+    /**
+     * 空值的过期时间，默认60秒，单位与unit一致
+     * @return
+     */
+    long nullTimeout() default 60;
 }
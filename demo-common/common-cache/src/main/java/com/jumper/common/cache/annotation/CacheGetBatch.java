@@ -0,0 +1,113 @@
+package com.jumper.common.cache.annotation;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量获取缓存数据
+ * <p>
+ * 用于根据一组id查询数据的方法，按元素逐个缓存，只用未命中的id调用目标方法，
+ * 例如：
+ * <pre>
+ * &#64;CacheGetBatch(ids = "#ids", key = "'user:' + #id", resultId = "#result.id")
+ * List&lt;User&gt; listByIds(List&lt;Long&gt; ids);
+ * </pre>
+ * 目标方法的返回值可以是List、Set或Map（id -> 数据），返回结果按ids的顺序排列，不存在的数据不返回
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheGetBatch {
+
+    /**
+     * id集合所在的方法参数（spel表达式），只能直接引用方法参数，调用目标方法时会替换为未命中的id
+     * @return
+     */
+    String ids();
+
+    /**
+     * 单个元素的缓存key，通过#id引用当前元素的id
+     * @return
+     */
+    String key();
+
+    /**
+     * 从目标方法返回的元素中取出id，通过#result引用当前元素，返回值为Map时不需要指定
+     * @return
+     */
+    String resultId() default "";
+
+    /**
+     * 缓存名称，用于监控指标的分组，默认为 类名.方法名
+     * @return
+     */
+    String name() default "";
+
+    /**
+     * 缓存所属的命名空间（支持spel表达式），与CacheGet一致
+     * @return
+     */
+    String namespace() default "";
+
+    /**
+     * 布隆过滤器名称，对应BloomFilterLoader的name，设置后key表达式的结果（不包含命名空间）一定不存在的id直接忽略，
+     * 不再查询缓存和执行目标方法；目标方法返回的数据会写入布隆过滤器
+     * @return
+     */
+    String bloomFilter() default "";
+
+    /**
+     * 缓存的包含条件（符合该条件的数据会从缓存中查询）
+     * @return
+     */
+    String condition() default "";
+
+    /**
+     * 缓存的排除条件（符合该条件的数据不会从缓存中查询，优先级高于condition）
+     * @return
+     */
+    String unless() default "";
+
+    /**
+     * 缓存的过期时间，默认300秒
+     * @return
+     */
+    long timeout() default 300;
+
+    /**
+     * 是否随机缓存过期时间，默认不随机，一旦指定该属性，则timeout会失效
+     * @return
+     */
+    boolean isRandomTimeout() default false;
+
+    /**
+     * 最大的随机时间1天，isRandomTimeout为true时生效
+     * @return
+     */
+    long maxTimeout() default 60*60*24;
+
+    /**
+     * 最小的随机时间100秒，isRandomTimeout为true时生效
+     * @return
+     */
+    long minTimeout() default 100;
+
+    /**
+     * 缓存相关时间单位，默认为秒
+     * @return
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * 是否缓存空值，开启后目标方法没有返回的id缓存一个空值标记，在nullTimeout内不再查询这些id，避免缓存穿透
+     * @return
+     */
+    boolean cacheNull() default false;
+
+    /**
+     * 空值的过期时间，默认60秒，单位与unit一致
+     * @return
+     */
+    long nullTimeout() default 60;
+}
@@ -0,0 +1,107 @@
+package com.jumper.common.cache.aop;
+
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * 异步返回值的适配，缓存中保存异步结果的值而不是异步对象本身
+ * <p>
+ * 支持CompletableFuture、CompletionStage，以及Reactor的Mono和Flux（Flux的值按List缓存），
+ * 没有引入Reactor时只支持前两种
+ */
+abstract class AsyncValueAdapter {
+
+    private static final boolean REACTOR_PRESENT = ClassUtils.isPresent("reactor.core.publisher.Mono", AsyncValueAdapter.class.getClassLoader());
+
+    private static final AsyncValueAdapter FUTURE = new AsyncValueAdapter() {
+        @Override
+        CompletableFuture<Object> toFuture(Object result) {
+            return result == null ? CompletableFuture.completedFuture(null) : ((CompletionStage<Object>) result).toCompletableFuture();
+        }
+
+        @Override
+        Object adapt(Supplier<CompletableFuture<Object>> future) {
+            return future.get();
+        }
+    };
+
+    /**
+     * 获取返回值类型对应的适配
+     *
+     * @param returnType
+     * @return 不是异步返回值时返回null
+     */
+    static AsyncValueAdapter of(Class<?> returnType) {
+        if (returnType == CompletableFuture.class || returnType == CompletionStage.class) {
+            return FUTURE;
+        }
+        if (REACTOR_PRESENT) {
+            return ReactorAdapters.of(returnType);
+        }
+        return null;
+    }
+
+    /**
+     * 将目标方法的返回值转换为异步结果
+     *
+     * @param result
+     * @return
+     */
+    abstract CompletableFuture<Object> toFuture(Object result);
+
+    /**
+     * 将异步结果转换为目标方法的返回值类型
+     *
+     * @param future 异步结果的提供者，Reactor类型在订阅时才获取
+     * @return
+     */
+    abstract Object adapt(Supplier<CompletableFuture<Object>> future);
+
+    /**
+     * Reactor类型的适配，单独放在内部类中，没有引入Reactor时不会加载
+     */
+    private static class ReactorAdapters {
+
+        private static final AsyncValueAdapter MONO = new AsyncValueAdapter() {
+            @Override
+            CompletableFuture<Object> toFuture(Object result) {
+                return result == null ? CompletableFuture.completedFuture(null) : ((Mono<Object>) result).toFuture();
+            }
+
+            @Override
+            Object adapt(Supplier<CompletableFuture<Object>> future) {
+                return Mono.defer(() -> Mono.fromFuture(future.get()));
+            }
+        };
+
+        private static final AsyncValueAdapter FLUX = new AsyncValueAdapter() {
+            @Override
+            CompletableFuture<Object> toFuture(Object result) {
+                return result == null ? CompletableFuture.completedFuture(null)
+                        : ((Flux<Object>) result).collectList().<Object>map(list -> list).toFuture();
+            }
+
+            @Override
+            Object adapt(Supplier<CompletableFuture<Object>> future) {
+                return Mono.defer(() -> Mono.fromFuture(future.get()))
+                        .flatMapMany(value -> Flux.fromIterable((List<Object>) value));
+            }
+        };
+
+        static AsyncValueAdapter of(Class<?> returnType) {
+            if (returnType == Mono.class) {
+                return MONO;
+            }
+            if (returnType == Flux.class) {
+                return FLUX;
+            }
+            return null;
+        }
+    }
+}
@@ -2,21 +2,38 @@ package com.jumper.common.cache.aop;
 
 import com.jumper.common.cache.annotation.CacheDelete;
 import com.jumper.common.cache.annotation.CacheGet;
+import com.jumper.common.cache.annotation.CacheGetBatch;
+import com.jumper.common.cache.application.CacheProperties;
+import com.jumper.common.cache.bloom.CacheBloomFilters;
+import com.jumper.common.cache.executor.CacheExecutor;
 import com.jumper.common.cache.handler.ClusterCacheHandler;
 import com.jumper.common.cache.handler.MemoryCacheHandler;
-import com.jumper.core.utiles.SpelExpressionUtils;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.hotkey.HotKeyCache;
+import com.jumper.common.cache.metrics.CacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.support.NullValue;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Aspect
 @Slf4j
@@ -34,6 +51,68 @@ public class CacheAop {
     @Autowired
     private ClusterCacheHandler clusterCacheHandler;
 
+    /**
+     * 缓存重建的单飞加载器
+     */
+    @Autowired
+    private SingleFlight singleFlight;
+
+    /**
+     * 缓存的提前刷新
+     */
+    @Autowired
+    private RefreshAhead refreshAhead;
+
+    /**
+     * 缓存命名空间
+     */
+    @Autowired
+    private CacheNamespace cacheNamespace;
+
+    @Autowired
+    private CacheProperties cacheProperties;
+
+    /**
+     * 缓存的监控指标
+     */
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    /**
+     * 热点key的识别与常驻
+     */
+    @Autowired
+    private HotKeyCache hotKeyCache;
+
+    /**
+     * 布隆过滤器
+     */
+    @Autowired
+    private CacheBloomFilters cacheBloomFilters;
+
+    /**
+     * 二级缓存的异步写入
+     */
+    @Autowired
+    private WriteBehind writeBehind;
+
+    /**
+     * 概率提前过期
+     */
+    @Autowired
+    private EarlyExpiration earlyExpiration;
+
+    /**
+     * 异步返回值的方法读取二级缓存和执行目标方法的线程池
+     */
+    @Autowired
+    private CacheExecutor cacheExecutor;
+
+    /**
+     * 缓存注解方法的解析缓存
+     */
+    private final CacheOperationSource operationSource = new CacheOperationSource();
+
 
     /**
      * 缓存读取的环绕增强
@@ -43,23 +122,27 @@ public class CacheAop {
      */
     @Around("@annotation(com.jumper.common.cache.annotation.CacheGet)")
     public Object cacheGetAop(ProceedingJoinPoint joinPoint) {
-        //获取注解上的key
-        Method method = getMethod(joinPoint);
-        //获得方法执行参数
-        Object[] params = joinPoint.getArgs();
+        //获取方法解析结果
+        CacheOperation<CacheGet> operation = operationSource.getCacheGet(getMethod(joinPoint));
+        //获得方法执行参数对应的表达式上下文
+        CacheOperation<CacheGet>.Context context = operation.newContext(joinPoint.getArgs());
         //读取数据前先从内存缓存中读取
-        CacheGet cacheGet = method.getAnnotation(CacheGet.class);
+        CacheGet cacheGet = operation.getAnnotation();
         //获得unless
         String unless = cacheGet.unless();
-        Boolean unlessFlag = SpelExpressionUtils.parserSpel(method, params, unless, Boolean.class, false);
+        Boolean unlessFlag = context.getValue(unless, Boolean.class, false);
         log.debug("[CACHE GET] - unless表达式 - {}  结果 - {}", unless, unlessFlag);
         //获得condition
         String condition = cacheGet.condition();
-        Boolean conditionFlag = SpelExpressionUtils.parserSpel(method, params, condition, Boolean.class, true);
+        Boolean conditionFlag = context.getValue(condition, Boolean.class, true);
         log.debug("[CACHE GET] - condition表达式 - {}  结果 - {}", condition, conditionFlag);
         //获取缓存的过期时间
         Long timeout = getTimeout(cacheGet);
         TimeUnit unit = cacheGet.unit();
+        //空值的过期时间，不缓存空值时为0
+        long nullTimeout = cacheGet.cacheNull() ? cacheGet.nullTimeout() : 0;
+        //异步返回值的适配，同步方法为null
+        AsyncValueAdapter asyncAdapter = AsyncValueAdapter.of(operation.getMethod().getReturnType());
         //方法的返回值
         Object value = null;
         //如果unless为false，并且condition为true时，才会进行缓存读取，否则直接执行目标方法
@@ -67,37 +150,55 @@ public class CacheAop {
             //获得key
             String key = cacheGet.key();
             //解析key中的spel表达式
-            key = SpelExpressionUtils.parserSpel(method, params, key, String.class, null);
+            key = context.getValue(key, String.class, null);
+            //布隆过滤器判断key一定不存在时直接返回
+            String bloomFilter = cacheGet.bloomFilter();
+            String bloomKey = key;
+            if (!bloomFilter.isEmpty() && !cacheBloomFilters.mightContain(bloomFilter, bloomKey)) {
+                cacheMetrics.bloomReject(bloomFilter);
+                log.debug("[CACHE GET] - 布隆过滤器 - {} 判断key不存在 - {}", bloomFilter, bloomKey);
+                return asyncAdapter == null ? null : asyncAdapter.adapt(() -> CompletableFuture.completedFuture(null));
+            }
+            //命名空间内的key需要带上命名空间的版本号
+            if (!cacheGet.namespace().isEmpty()) {
+                String namespace = context.getValue(cacheGet.namespace(), String.class, null);
+                key = cacheNamespace.getKey(namespace, key);
+            }
+            key = withPrefix(key);
             log.debug("[CACHE GET] - 缓存的key - {}", key);
+            //异步返回值缓存异步结果的值
+            if (asyncAdapter != null) {
+                return cacheGetAsync(operation, joinPoint, asyncAdapter, key, bloomFilter, bloomKey, timeout, unit, nullTimeout);
+            }
             //从缓存中获取数据
-            value = getCache(key, timeout, unit);
+            value = getCache(operation.getName(), key, timeout, unit, nullTimeout);
+            //没有开启提前过期时不需要记录重建耗时
+            final boolean earlyExpire = cacheGet.earlyExpireBeta() > 0;
 
             //从分布式缓存中获取的数据为空
             if (Objects.isNull(value)) {
-                //加锁访问后端数据
-                synchronized (key.intern()) {
-                    //双重锁判定
-                    value = getCache(key, timeout, unit);
-                    if (Objects.isNull(value)) {
-                        //直接调用目标方法
-                        try {
-                            value = joinPoint.proceed();
-                            log.debug("[CACHE GET] - 执行目标方法获得数据 - {}", value);
-                            if (Objects.isNull(value)) return value;
-                            log.debug("[CACHE GET] - 开始进行缓存重建.....");
-                            //进行缓存重建
-                            if (timeout == -1) {
-                                memoryCacheHandler.putCache(key, value);
-                                clusterCacheHandler.putCache(key, value);
-                            } else {
-                                memoryCacheHandler.putCache(key, value, timeout, unit);
-                                clusterCacheHandler.putCache(key, value, timeout, unit);
-                            }
-
-                        } catch (Throwable e) {
-                            e.printStackTrace();
-                        }
+                //同一个key只允许一个线程访问后端数据，其余线程等待该线程的结果
+                final String cacheKey = key;
+                try {
+                    value = singleFlight.load(operation.getName(), cacheKey,
+                            //双重检查
+                            () -> getCache(null, cacheKey, timeout, unit, nullTimeout),
+                            () -> loadCache(operation.getName(), joinPoint, cacheKey, timeout, unit, nullTimeout, earlyExpire));
+                    //写入布隆过滤器，本地已存在时不会访问Redis
+                    if (!bloomFilter.isEmpty() && value != null && !(value instanceof NullValue)) {
+                        cacheBloomFilters.add(bloomFilter, bloomKey);
                     }
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                }
+            } else if (timeout != -1 && !(value instanceof NullValue)) {
+                //缓存即将过期时异步刷新
+                long refreshBefore = getRefreshBefore(cacheGet, key, timeout, unit);
+                if (refreshBefore > 0 || cacheGet.earlyExpireBeta() > 0) {
+                    final String cacheKey = key;
+                    //刷新任务同样走单飞加载，和并发的未命中共用一次目标方法调用
+                    refreshIfNecessary(operation.getName(), cacheKey, refreshBefore, cacheGet.earlyExpireBeta(), () -> singleFlight.load(operation.getName(), cacheKey, () -> null,
+                            () -> loadCache(operation.getName(), joinPoint, cacheKey, timeout, unit, nullTimeout, earlyExpire)));
                 }
             }
         } else {
@@ -109,7 +210,169 @@ public class CacheAop {
             }
         }
 
-        return value;
+        //缓存的空值按命中处理，返回null
+        return value instanceof NullValue ? null : value;
+    }
+
+    /**
+     * 异步返回值的缓存读取
+     * <p>
+     * 内存缓存命中时直接返回已完成的结果；未命中时二级缓存的读取和目标方法的执行都在线程池中进行，
+     * 不阻塞调用线程，同一个key的并发调用共用一次加载。执行目标方法前恢复调用线程的MDC、请求和认证上下文
+     *
+     * @param operation
+     * @param joinPoint
+     * @param asyncAdapter
+     * @param key
+     * @param bloomFilter  布隆过滤器名称，没有指定时为空字符串
+     * @param bloomKey     布隆过滤器中的key
+     * @param timeout
+     * @param unit
+     * @param nullTimeout
+     * @return
+     */
+    private Object cacheGetAsync(CacheOperation<CacheGet> operation, ProceedingJoinPoint joinPoint, AsyncValueAdapter asyncAdapter,
+                                 String key, String bloomFilter, String bloomKey, long timeout, TimeUnit unit, long nullTimeout) {
+        String name = operation.getName();
+        boolean earlyExpire = operation.getAnnotation().earlyExpireBeta() > 0;
+        Object value = getMemoryCache(name, key);
+        if (!Objects.isNull(value)) {
+            if (timeout != -1 && !(value instanceof NullValue)) {
+                //缓存即将过期时异步刷新
+                CacheGet cacheGet = operation.getAnnotation();
+                long refreshBefore = getRefreshBefore(cacheGet, key, timeout, unit);
+                if (refreshBefore > 0 || cacheGet.earlyExpireBeta() > 0) {
+                    CallerContext callerContext = CallerContext.capture();
+                    refreshIfNecessary(name, key, refreshBefore, cacheGet.earlyExpireBeta(), () -> singleFlight.loadAsync(name, key,
+                            () -> loadCacheAsync(name, joinPoint, asyncAdapter, callerContext, key, timeout, unit, nullTimeout, earlyExpire)).join());
+                }
+            }
+            Object cached = value instanceof NullValue ? null : value;
+            return asyncAdapter.adapt(() -> CompletableFuture.completedFuture(cached));
+        }
+        //目标方法可能在缓存线程中执行，需要带上调用线程的上下文
+        CallerContext callerContext = CallerContext.capture();
+        //每次调用都返回新的异步结果，避免调用方取消共用的加载
+        return asyncAdapter.adapt(() -> singleFlight.loadAsync(name, key, () -> CompletableFuture
+                        .supplyAsync(() -> getClusterCache(name, key, timeout, unit, nullTimeout), cacheExecutor.asCallerRunsExecutor())
+                        .thenCompose(cached -> cached != null ? CompletableFuture.completedFuture(cached)
+                                : loadCacheAsync(name, joinPoint, asyncAdapter, callerContext, key, timeout, unit, nullTimeout, earlyExpire)))
+                .thenApply(loaded -> {
+                    //写入布隆过滤器，本地已存在时不会访问Redis
+                    if (!bloomFilter.isEmpty() && loaded != null && !(loaded instanceof NullValue)) {
+                        cacheBloomFilters.add(bloomFilter, bloomKey);
+                    }
+                    return loaded instanceof NullValue ? null : loaded;
+                }));
+    }
+
+    /**
+     * 批量读取缓存的环绕增强
+     *
+     * @param joinPoint
+     * @return
+     */
+    @Around("@annotation(com.jumper.common.cache.annotation.CacheGetBatch)")
+    public Object cacheGetBatchAop(ProceedingJoinPoint joinPoint) throws Throwable {
+        //获取方法解析结果
+        CacheOperation<CacheGetBatch> operation = operationSource.getCacheGetBatch(getMethod(joinPoint));
+        Object[] args = joinPoint.getArgs();
+        //获得方法执行参数对应的表达式上下文
+        CacheOperation<CacheGetBatch>.Context context = operation.newContext(args);
+        CacheGetBatch cacheGetBatch = operation.getAnnotation();
+        //获得unless
+        String unless = cacheGetBatch.unless();
+        Boolean unlessFlag = context.getValue(unless, Boolean.class, false);
+        log.debug("[CACHE GET] - unless表达式 - {}  结果 - {}", unless, unlessFlag);
+        //获得condition
+        String condition = cacheGetBatch.condition();
+        Boolean conditionFlag = context.getValue(condition, Boolean.class, true);
+        log.debug("[CACHE GET] - condition表达式 - {}  结果 - {}", condition, conditionFlag);
+        if (unlessFlag || !conditionFlag) {
+            log.debug("[CACHE GET] - 不符合缓存条件，直接执行目标方法");
+            return joinPoint.proceed();
+        }
+        //获得id集合及其所在的参数位置
+        Collection<?> ids = context.getValue(cacheGetBatch.ids(), Collection.class, Collections.emptyList());
+        if (ids.isEmpty()) {
+            return joinPoint.proceed();
+        }
+        int idsIndex = indexOf(args, ids);
+        if (idsIndex < 0) {
+            throw new IllegalStateException("CacheGetBatch的ids必须直接引用方法参数 - " + operation.getMethod());
+        }
+        //获得命名空间
+        String namespace = cacheGetBatch.namespace().isEmpty() ? null
+                : context.getValue(cacheGetBatch.namespace(), String.class, null);
+        //id -> 缓存的key
+        Map<Object, String> keys = new LinkedHashMap<>();
+        //id -> 布隆过滤器中的key
+        Map<Object, String> bloomKeys = new HashMap<>();
+        String bloomFilter = cacheGetBatch.bloomFilter();
+        for (Object id : ids) {
+            context.setVariable("id", id);
+            String key = context.getValue(cacheGetBatch.key(), String.class, null);
+            //布隆过滤器判断一定不存在的id直接忽略
+            if (!bloomFilter.isEmpty()) {
+                if (!cacheBloomFilters.mightContain(bloomFilter, key)) {
+                    cacheMetrics.bloomReject(bloomFilter);
+                    log.debug("[CACHE GET] - 布隆过滤器 - {} 判断key不存在 - {}", bloomFilter, key);
+                    continue;
+                }
+                bloomKeys.put(id, key);
+            }
+            //命名空间内的key需要带上命名空间的版本号
+            if (namespace != null) {
+                key = cacheNamespace.getKey(namespace, key);
+            }
+            keys.put(id, withPrefix(key));
+        }
+        log.debug("[CACHE GET] - 批量读取缓存的key - {}", keys.values());
+        //获取缓存的过期时间
+        Long timeout = getTimeout(cacheGetBatch.isRandomTimeout(), cacheGetBatch.timeout(), cacheGetBatch.maxTimeout(), cacheGetBatch.minTimeout());
+        TimeUnit unit = cacheGetBatch.unit();
+        //从缓存中批量获取数据
+        long nullTimeout = cacheGetBatch.cacheNull() ? cacheGetBatch.nullTimeout() : 0;
+        Map<String, Object> cached = getCacheAll(operation.getName(), keys.values(), timeout, unit, nullTimeout);
+        //未命中的id
+        List<Object> missIds = new ArrayList<>();
+        keys.forEach((id, key) -> {
+            if (!cached.containsKey(key)) {
+                missIds.add(id);
+            }
+        });
+        Map<Object, Object> loaded = Collections.emptyMap();
+        if (!missIds.isEmpty()) {
+            //只用未命中的id调用目标方法
+            Object[] missArgs = args.clone();
+            missArgs[idsIndex] = ids instanceof Set ? new LinkedHashSet<>(missIds) : missIds;
+            loaded = loadCacheBatch(operation, context, joinPoint, missArgs, idsIndex, keys, timeout, unit);
+            //写入布隆过滤器
+            if (!bloomFilter.isEmpty()) {
+                loaded.keySet().stream().map(bloomKeys::get).filter(Objects::nonNull)
+                        .forEach(bloomKey -> cacheBloomFilters.add(bloomFilter, bloomKey));
+            }
+        }
+        //按ids的顺序组装返回结果，缓存的空值不返回
+        Class<?> returnType = operation.getMethod().getReturnType();
+        if (Map.class.isAssignableFrom(returnType)) {
+            Map<Object, Object> result = new LinkedHashMap<>();
+            for (Map.Entry<Object, String> entry : keys.entrySet()) {
+                Object value = cached.containsKey(entry.getValue()) ? cached.get(entry.getValue()) : loaded.get(entry.getKey());
+                if (value != null && !(value instanceof NullValue)) {
+                    result.put(entry.getKey(), value);
+                }
+            }
+            return result;
+        }
+        Collection<Object> result = Set.class.isAssignableFrom(returnType) ? new LinkedHashSet<>() : new ArrayList<>();
+        for (Map.Entry<Object, String> entry : keys.entrySet()) {
+            Object value = cached.containsKey(entry.getValue()) ? cached.get(entry.getValue()) : loaded.get(entry.getKey());
+            if (value != null && !(value instanceof NullValue)) {
+                result.add(value);
+            }
+        }
+        return result;
     }
 
     /**
@@ -120,14 +383,14 @@ public class CacheAop {
      */
     @Around("@annotation(com.jumper.common.cache.annotation.CacheDelete)")
     public Object cacheDelAop(ProceedingJoinPoint joinPoint) throws Throwable {
-        //获取注解上的key
-        Method method = getMethod(joinPoint);
+        //获取方法解析结果
+        CacheOperation<CacheDelete> operation = operationSource.getCacheDelete(getMethod(joinPoint));
 
-        //获得方法执行参数
-        Object[] params = joinPoint.getArgs();
+        //获得方法执行参数对应的表达式上下文
+        CacheOperation<CacheDelete>.Context context = operation.newContext(joinPoint.getArgs());
 
         //获取缓存删除注解
-        CacheDelete cacheDelete = method.getAnnotation(CacheDelete.class);
+        CacheDelete cacheDelete = operation.getAnnotation();
 
         //是否清空全部
         boolean deleteAll = cacheDelete.isDeleteAll();
@@ -137,30 +400,56 @@ public class CacheAop {
 
         //获得unless
         String unless = cacheDelete.unless();
-        Boolean unlessFlag = SpelExpressionUtils.parserSpel(method, params, unless, Boolean.class, false);
+        Boolean unlessFlag = context.getValue(unless, Boolean.class, false);
         log.debug("[CACHE DELETE] - unless表达式 - {}  结果 - {}", unless, unlessFlag);
 
         //获得condition
         String condition = cacheDelete.condition();
-        Boolean conditionFlag = SpelExpressionUtils.parserSpel(method, params, condition, Boolean.class, true);
+        Boolean conditionFlag = context.getValue(condition, Boolean.class, true);
         log.debug("[CACHE DELETE] - condition表达式 - {}  结果 - {}", condition, conditionFlag);
         //是否通过正则表达式删除
         boolean deletePattern = cacheDelete.deletePattern();
-        //获得key
-        String[] keys = cacheDelete.key();
+        //获得命名空间
+        String namespace = cacheDelete.namespace().isEmpty() ? null
+                : context.getValue(cacheDelete.namespace(), String.class, null);
+        //命名空间表达式的结果为空时无法确定删除范围，不删除任何缓存
+        boolean namespaceMissing = !cacheDelete.namespace().isEmpty() && namespace == null;
+        if (namespaceMissing) {
+            log.warn("[CACHE DELETE] - 命名空间表达式 - {} 的结果为空，不删除缓存", cacheDelete.namespace());
+        }
+        //整个命名空间失效只由注解决定，key表达式的结果为空时不删除任何缓存
+        String deleteNamespace = namespace != null && (deleteAll || !hasKey(cacheDelete.key())) ? namespace : null;
+        //获得key，删除全部缓存时key参数失效
+        String[] keys = deleteAll ? new String[0] : cacheDelete.key();
         //解析key中的spel表达式
         List<String> keysList = new ArrayList<>();
         for (String key : keys) {
+            if (key.isEmpty()) {
+                continue;
+            }
             //解析key用List接收,用于获取的方法参数本身就是已经生成的多个key的情况
-            List k = SpelExpressionUtils.parserSpel(method, params, key, List.class, null);
+            List k = context.getValue(key, List.class, Collections.emptyList());
             log.debug("[CACHE DELETE] - 需要删除的key - {}", k);
-            keysList.addAll(k);
+            for (Object deleteKey : k) {
+                //命名空间内的key需要带上命名空间的版本号
+                String cacheKey = String.valueOf(deleteKey);
+                if (deletePattern) {
+                    //表达式的前缀需要转义，并放在开头的^之后
+                    if (namespace != null) {
+                        cacheKey = MemoryKeyIndex.withPrefix(cacheNamespace.getKey(namespace, ""), cacheKey);
+                    }
+                    keysList.add(MemoryKeyIndex.withPrefix(cacheProperties.getKeyPrefix(), cacheKey));
+                } else {
+                    keysList.add(withPrefix(namespace == null ? cacheKey : cacheNamespace.getKey(namespace, cacheKey)));
+                }
+            }
         }
 
         //前置删除
-        if (flag && !unlessFlag && conditionFlag) {
+        if (flag && !unlessFlag && conditionFlag && !namespaceMissing) {
             log.debug("[CACHE DELETE] - 开始进行前置删除......");
-            deleteCache(keysList, deletePattern);
+            //前置删除需要等待二级缓存删除完成，避免业务执行期间读到旧数据
+            deleteCache(deleteNamespace, keysList, deletePattern, deleteAll, true);
         }
 
         //调用目标方法
@@ -168,9 +457,9 @@ public class CacheAop {
             Object result = joinPoint.proceed();
 
             //后置删除
-            if (!flag && !unlessFlag && conditionFlag) {
+            if (!flag && !unlessFlag && conditionFlag && !namespaceMissing) {
                 log.debug("[CACHE DELETE] - 开始进行后置删除......");
-                deleteCache(keysList, deletePattern);
+                deleteCache(deleteNamespace, keysList, deletePattern, deleteAll, false);
             }
 
             return result;
@@ -180,41 +469,508 @@ public class CacheAop {
         }
     }
 
-    private void deleteCache(List<String> keysList, boolean deletePattern) {
+    /**
+     * 执行目标方法并重建缓存
+     *
+     * @param name      缓存名称
+     * @param joinPoint
+     * @param key
+     * @param timeout
+     * @param unit
+     * @param nullTimeout 空值的过期时间，单位与unit一致，为0时不缓存空值
+     * @param earlyExpire 是否开启了提前过期，开启时记录重建耗时
+     * @return 缓存了空值时返回NullValue
+     * @throws Throwable
+     */
+    private Object loadCache(String name, ProceedingJoinPoint joinPoint, String key, long timeout, TimeUnit unit, long nullTimeout,
+                             boolean earlyExpire) throws Throwable {
+        //直接调用目标方法
+        long start = System.nanoTime();
+        Object value = joinPoint.proceed();
+        long cost = System.nanoTime() - start;
+        cacheMetrics.load(name, cost);
+        if (earlyExpire) {
+            earlyExpiration.record(key, cost);
+        }
+        log.debug("[CACHE GET] - 执行目标方法获得数据 - {}", value);
+        return putLoadedCache(key, value, timeout, unit, nullTimeout);
+    }
+
+    /**
+     * 执行异步返回值的目标方法，在异步结果完成后重建缓存
+     *
+     * @param name         缓存名称
+     * @param joinPoint
+     * @param asyncAdapter
+     * @param callerContext 调用线程的上下文，执行目标方法时恢复
+     * @param key
+     * @param timeout
+     * @param unit
+     * @param nullTimeout   空值的过期时间，为0时不缓存空值
+     * @param earlyExpire   是否开启了提前过期，开启时记录重建耗时
+     * @return 缓存了空值时结果为NullValue
+     */
+    private CompletableFuture<Object> loadCacheAsync(String name, ProceedingJoinPoint joinPoint, AsyncValueAdapter asyncAdapter,
+                                                     CallerContext callerContext, String key, long timeout, TimeUnit unit, long nullTimeout,
+                                                     boolean earlyExpire) {
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = callerContext.call(joinPoint::proceed);
+        } catch (Throwable e) {
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        //缓存重建可能访问Redis，不占用完成异步结果的线程
+        return asyncAdapter.toFuture(result).thenApplyAsync(value -> {
+            long cost = System.nanoTime() - start;
+            cacheMetrics.load(name, cost);
+            if (earlyExpire) {
+                earlyExpiration.record(key, cost);
+            }
+            log.debug("[CACHE GET] - 异步执行目标方法获得数据 - {}", value);
+            return putLoadedCache(key, value, timeout, unit, nullTimeout);
+        }, cacheExecutor.asCallerRunsExecutor());
+    }
+
+    /**
+     * 使用目标方法返回的数据重建缓存
+     *
+     * @param key
+     * @param value
+     * @param timeout
+     * @param unit
+     * @param nullTimeout 空值的过期时间，为0时不缓存空值
+     * @return 缓存了空值时返回NullValue
+     */
+    private Object putLoadedCache(String key, Object value, long timeout, TimeUnit unit, long nullTimeout) {
+        if (Objects.isNull(value)) {
+            if (nullTimeout <= 0) return value;
+            //缓存空值，避免不存在的数据每次都访问数据库
+            log.debug("[CACHE GET] - 缓存空值 - {}", key);
+            memoryCacheHandler.putCache(key, NullValue.INSTANCE, nullTimeout, unit);
+            putClusterCache(key, NullValue.INSTANCE, nullTimeout, unit);
+            return NullValue.INSTANCE;
+        }
+        log.debug("[CACHE GET] - 开始进行缓存重建.....");
+        //进行缓存重建
+        if (timeout == -1) {
+            memoryCacheHandler.putCache(key, value);
+        } else {
+            memoryCacheHandler.putCache(key, value, timeout, unit);
+        }
+        putClusterCache(key, value, timeout, unit);
+        hotKeyCache.pin(key, value, timeout == -1 ? -1 : unit.toMillis(timeout));
+        return value;
+    }
+
+    /**
+     * 用未命中的id执行目标方法并批量重建缓存
+     *
+     * @param operation
+     * @param context
+     * @param joinPoint
+     * @param args      替换为未命中id后的方法参数
+     * @param idsIndex  id集合所在的参数位置
+     * @param keys      id -> 缓存的key
+     * @param timeout
+     * @param unit
+     * @return id -> 数据
+     * @throws Throwable
+     */
+    private Map<Object, Object> loadCacheBatch(CacheOperation<CacheGetBatch> operation, CacheOperation<CacheGetBatch>.Context context,
+                                               ProceedingJoinPoint joinPoint, Object[] args, int idsIndex, Map<Object, String> keys,
+                                               long timeout, TimeUnit unit) throws Throwable {
+        long start = System.nanoTime();
+        Object result = joinPoint.proceed(args);
+        cacheMetrics.load(operation.getName(), System.nanoTime() - start);
+        log.debug("[CACHE GET] - 执行目标方法获得数据 - {}", result);
+        Map<Object, Object> loaded = new HashMap<>();
+        if (result instanceof Map) {
+            loaded.putAll((Map<?, ?>) result);
+        } else if (result instanceof Collection) {
+            String resultId = operation.getAnnotation().resultId();
+            if (resultId.isEmpty()) {
+                throw new IllegalStateException("CacheGetBatch的返回值为集合时必须指定resultId - " + operation.getMethod());
+            }
+            for (Object element : (Collection<?>) result) {
+                if (element == null) {
+                    continue;
+                }
+                context.setVariable("result", element);
+                loaded.put(context.getValue(resultId, Object.class, null), element);
+            }
+        }
+        //进行缓存重建
+        Map<String, Object> values = new HashMap<>(loaded.size() * 2);
+        loaded.forEach((id, value) -> {
+            String key = keys.get(id);
+            if (key == null) {
+                //目标方法返回了未请求的id，或者id的类型与参数不一致
+                log.debug("[CACHE GET] - 返回的id不在请求的ids中，不进行缓存 - {}", id);
+                return;
+            }
+            values.put(key, value);
+        });
+        if (!values.isEmpty()) {
+            log.debug("[CACHE GET] - 开始进行批量缓存重建.....");
+            memoryCacheHandler.putAll(values, timeout, unit);
+            putClusterCacheAll(values, timeout, unit);
+        }
+        //目标方法没有返回的id缓存空值
+        CacheGetBatch cacheGetBatch = operation.getAnnotation();
+        if (cacheGetBatch.cacheNull()) {
+            Map<String, Object> nullValues = new HashMap<>();
+            Object[] missIds = args[idsIndex] instanceof Collection ? ((Collection<?>) args[idsIndex]).toArray() : new Object[0];
+            for (Object id : missIds) {
+                if (!loaded.containsKey(id)) {
+                    nullValues.put(keys.get(id), NullValue.INSTANCE);
+                }
+            }
+            if (!nullValues.isEmpty()) {
+                log.debug("[CACHE GET] - 缓存空值 - {}", nullValues.keySet());
+                memoryCacheHandler.putAll(nullValues, cacheGetBatch.nullTimeout(), unit);
+                putClusterCacheAll(nullValues, cacheGetBatch.nullTimeout(), unit);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 写入二级缓存，开启异步写入时放入写入队列
+     *
+     * @param key
+     * @param value
+     * @param timeout 为-1时不设置过期时间
+     * @param unit
+     */
+    private void putClusterCache(String key, Object value, long timeout, TimeUnit unit) {
+        if (writeBehind.isEnable()) {
+            writeBehind.write(key, value, timeout, unit);
+        } else if (timeout == -1) {
+            clusterCacheHandler.putCache(key, value);
+        } else {
+            clusterCacheHandler.putCache(key, value, timeout, unit);
+        }
+    }
+
+    /**
+     * 批量写入二级缓存，开启异步写入时放入写入队列
+     *
+     * @param values
+     * @param timeout 为-1时不设置过期时间
+     * @param unit
+     */
+    private void putClusterCacheAll(Map<String, Object> values, long timeout, TimeUnit unit) {
+        if (writeBehind.isEnable()) {
+            values.forEach((key, value) -> writeBehind.write(key, value, timeout, unit));
+        } else {
+            clusterCacheHandler.putAll(values, timeout, unit);
+        }
+    }
+
+    /**
+     * 获取提前刷新时间，常驻的热点key在剩余时间不足五分之一时刷新
+     *
+     * @param cacheGet
+     * @param key
+     * @param timeout
+     * @param unit
+     * @return 单位毫秒，为0时不刷新
+     */
+    private long getRefreshBefore(CacheGet cacheGet, String key, long timeout, TimeUnit unit) {
+        if (cacheGet.refreshBefore() > 0) {
+            return unit.toMillis(cacheGet.refreshBefore());
+        }
+        return hotKeyCache.isPinned(key) ? unit.toMillis(timeout) / 5 : 0;
+    }
+
+    /**
+     * 内存缓存进入刷新窗口或按XFetch判断需要提前过期时，提交异步刷新任务
+     *
+     * @param name          缓存名称
+     * @param key
+     * @param refreshBefore 提前刷新时间，单位毫秒
+     * @param beta          概率提前过期的系数，为0时不开启
+     * @param task          刷新任务
+     */
+    private void refreshIfNecessary(String name, String key, long refreshBefore, double beta, SingleFlight.Loader task) {
+        long expire = hotKeyCache.isPinned(key) ? hotKeyCache.getExpire(key) : memoryCacheHandler.getExpire(key);
+        if (expire < 0) {
+            return;
+        }
+        if (expire > refreshBefore) {
+            if (beta <= 0 || !earlyExpiration.shouldRefresh(key, beta, expire)) {
+                return;
+            }
+            cacheMetrics.earlyRefresh(name);
+            log.debug("[CACHE GET] - 缓存剩余过期时间 - {}ms，概率提前过期 - {}", expire, key);
+        } else {
+            log.debug("[CACHE GET] - 缓存剩余过期时间 - {}ms，开始异步刷新 - {}", expire, key);
+        }
+        refreshAhead.refresh(key, task);
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param deleteNamespace 需要整体失效的命名空间，没有时为null
+     * @param keysList        为空时不删除任何key
+     * @param deletePattern
+     * @param deleteAll       是否删除全部缓存
+     * @param waitPattern     是否等待二级缓存的表达式删除完成
+     */
+    private void deleteCache(String deleteNamespace, List<String> keysList, boolean deletePattern, boolean deleteAll, boolean waitPattern) {
+        if (deleteNamespace != null) {
+            cacheNamespace.invalidate(deleteNamespace);
+            return;
+        }
+        if (deleteAll) {
+            deleteAllCache(waitPattern);
+            return;
+        }
+        List<CompletableFuture<Long>> patternDeletes = new ArrayList<>();
         for (String key : keysList) {
             boolean result = deletePattern ? memoryCacheHandler.deleteCachePattern(key) : memoryCacheHandler.deleteCache(key);
+            //取消未写入二级缓存的数据，避免删除后又写入旧值
+            if (deletePattern) {
+                hotKeyCache.removePattern(key);
+                writeBehind.cancelPattern(key);
+            } else {
+                hotKeyCache.remove(key);
+                writeBehind.cancel(key);
+            }
             //调用方法删除其他节点缓存
             memoryCacheHandler.deleteClusterCache(key, deletePattern);
-            result = deletePattern ? clusterCacheHandler.deleteCachePattern(key) : clusterCacheHandler.deleteCache(key);
+            if (deletePattern) {
+                patternDeletes.add(clusterCacheHandler.deleteCachePatternAsync(key));
+            } else {
+                result = clusterCacheHandler.deleteCache(key);
+            }
+        }
+        if (waitPattern) {
+            awaitPatternDeletes(patternDeletes, keysList);
         }
     }
 
+    /**
+     * 注解中是否声明了key
+     *
+     * @param keys
+     * @return
+     */
+    private boolean hasKey(String[] keys) {
+        for (String key : keys) {
+            if (!key.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 删除全部缓存
+     * <p>
+     * 一级缓存直接清空并通知其他节点清空，二级缓存只删除keyPrefix下的key，未配置keyPrefix时不删除二级缓存；
+     * keyPrefix下的失效记录、热点key和命名空间版本号不会被删除
+     *
+     * @param waitPattern 是否等待二级缓存删除完成
+     */
+    private void deleteAllCache(boolean waitPattern) {
+        memoryCacheHandler.deleteAll();
+        hotKeyCache.clear();
+        writeBehind.cancelAll();
+        memoryCacheHandler.deleteClusterCacheAll();
+        String keyPrefix = cacheProperties.getKeyPrefix();
+        if (keyPrefix.isEmpty()) {
+            log.warn("[CACHE DELETE] - 未配置jumper.cache.keyPrefix，只清空了一级缓存");
+            return;
+        }
+        //前缀需要转义，二级缓存按转义后的glob删除，缓存自身使用的key不会被删除
+        String pattern = MemoryKeyIndex.withPrefix(keyPrefix, "^");
+        CompletableFuture<Long> patternDelete = clusterCacheHandler.deleteCachePatternAsync(pattern);
+        if (waitPattern) {
+            awaitPatternDeletes(Collections.singletonList(patternDelete), pattern);
+        }
+    }
+
+    /**
+     * 等待二级缓存的表达式删除完成
+     *
+     * @param patternDeletes
+     * @param keys           用于日志输出
+     */
+    private void awaitPatternDeletes(List<CompletableFuture<Long>> patternDeletes, Object keys) {
+        if (patternDeletes.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(patternDeletes.toArray(new CompletableFuture[0]))
+                    .get(cacheProperties.getPatternDeleteTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("[CACHE DELETE] - 等待二级缓存表达式删除超时 - {}", keys);
+        } catch (ExecutionException e) {
+            log.warn("[CACHE DELETE] - 二级缓存表达式删除失败 - {}", keys, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 拼接缓存key的统一前缀
+     *
+     * @param key
+     * @return
+     */
+    private String withPrefix(String key) {
+        return cacheProperties.getKeyPrefix() + key;
+    }
+
     /**
      * 从缓存中获取数据
      *
+     * @param name        缓存名称，为null时不统计命中率（如单飞加载的二次检查）
      * @param key
+     * @param timeout
+     * @param unit
+     * @param nullTimeout 空值的过期时间，单位与unit一致
      * @return
      */
-    private Object getCache(String key, long timeout, TimeUnit unit) {
+    private Object getCache(String name, String key, long timeout, TimeUnit unit, long nullTimeout) {
+        Object value = getMemoryCache(name, key);
+        if (!Objects.isNull(value)) {
+            return value;
+        }
+        return getClusterCache(name, key, timeout, unit, nullTimeout);
+    }
+
+    /**
+     * 从内存缓存中获取数据
+     *
+     * @param name 缓存名称，为null时不统计命中率
+     * @param key
+     * @return
+     */
+    private Object getMemoryCache(String name, String key) {
+        //记录访问频率，热点key优先读取常驻的值
+        boolean hot = name != null && hotKeyCache.record(key);
+        Object value = hot ? hotKeyCache.get(key) : null;
+        if (!Objects.isNull(value)) {
+            log.debug("[CACHE GET] - 从常驻的热点key中获取数据 - {}", value);
+            cacheMetrics.hit(name, CacheMetrics.L1);
+            return value;
+        }
         //从内存缓存中获取数据
-        Object value = memoryCacheHandler.getCache(key);
+        value = memoryCacheHandler.getCache(key);
         log.debug("[CACHE GET] - 从内存缓存中获取数据 - {}", value);
-        //如果内存缓存为空
-        if (Objects.isNull(value)) {
-            //从分布式缓存中获取数据
-            value = clusterCacheHandler.getCache(key);
-            log.debug("[CACHE GET] - 从分布式缓存中获取数据 - {}", value);
-
-            if (!Objects.isNull(value)) {
-                //重建内存缓存
-                if (timeout == -1) {
-                    memoryCacheHandler.putCache(key, value);
+        if (!Objects.isNull(value)) {
+            if (name != null) cacheMetrics.hit(name, CacheMetrics.L1);
+            if (hot && !(value instanceof NullValue)) hotKeyCache.pin(key, value, memoryCacheHandler.getExpire(key));
+            return value;
+        }
+        if (name != null) cacheMetrics.miss(name, CacheMetrics.L1);
+        return null;
+    }
+
+    /**
+     * 从分布式缓存中获取数据，并重建内存缓存
+     *
+     * @param name        缓存名称，为null时不统计命中率
+     * @param key
+     * @param timeout
+     * @param unit
+     * @param nullTimeout 空值的过期时间，单位与unit一致
+     * @return
+     */
+    private Object getClusterCache(String name, String key, long timeout, TimeUnit unit, long nullTimeout) {
+        boolean hot = name != null && hotKeyCache.isHot(key);
+        //如果内存缓存为空，从分布式缓存中获取数据
+        Object value = clusterCacheHandler.getCache(key);
+        log.debug("[CACHE GET] - 从分布式缓存中获取数据 - {}", value);
+
+        if (!Objects.isNull(value)) {
+            if (name != null) cacheMetrics.hit(name, CacheMetrics.L2);
+            //重建内存缓存，空值只按二级缓存的剩余时间短暂缓存，不常驻
+            if (value instanceof NullValue) {
+                putNullMemoryCache(key, nullTimeout, unit);
+            } else if (timeout == -1) {
+                memoryCacheHandler.putCache(key, value);
+            } else {
+                memoryCacheHandler.putCache(key, value, timeout, unit);
+            }
+            if (hot && !(value instanceof NullValue)) hotKeyCache.pin(key, value, timeout == -1 ? -1 : unit.toMillis(timeout));
+        } else if (name != null) {
+            cacheMetrics.miss(name, CacheMetrics.L2);
+        }
+        return value;
+    }
+
+    /**
+     * 从缓存中批量获取数据，内存缓存未命中的key再从分布式缓存中批量获取
+     *
+     * @param name        缓存名称
+     * @param keys
+     * @param timeout
+     * @param unit
+     * @param nullTimeout 空值的过期时间，单位与unit一致
+     * @return 命中的缓存
+     */
+    private Map<String, Object> getCacheAll(String name, Collection<String> keys, long timeout, TimeUnit unit, long nullTimeout) {
+        Map<String, Object> values = new HashMap<>(memoryCacheHandler.getAll(keys));
+        cacheMetrics.hit(name, CacheMetrics.L1, values.size());
+        List<String> missKeys = new ArrayList<>();
+        for (String key : keys) {
+            if (!values.containsKey(key)) {
+                missKeys.add(key);
+            }
+        }
+        log.debug("[CACHE GET] - 内存缓存命中 - {} 个，未命中 - {} 个", values.size(), missKeys.size());
+        if (missKeys.isEmpty()) {
+            return values;
+        }
+        cacheMetrics.miss(name, CacheMetrics.L1, missKeys.size());
+        Map<String, Object> clusterValues = clusterCacheHandler.getAll(missKeys);
+        log.debug("[CACHE GET] - 分布式缓存命中 - {} 个", clusterValues.size());
+        cacheMetrics.hit(name, CacheMetrics.L2, clusterValues.size());
+        cacheMetrics.miss(name, CacheMetrics.L2, missKeys.size() - clusterValues.size());
+        if (!clusterValues.isEmpty()) {
+            //重建内存缓存，空值单独按二级缓存的剩余时间写入
+            Map<String, Object> memoryValues = new HashMap<>(clusterValues.size() * 2);
+            clusterValues.forEach((key, value) -> {
+                if (value instanceof NullValue) {
+                    putNullMemoryCache(key, nullTimeout, unit);
                 } else {
-                    memoryCacheHandler.putCache(key, value, timeout, unit);
+                    memoryValues.put(key, value);
                 }
+            });
+            if (!memoryValues.isEmpty()) {
+                memoryCacheHandler.putAll(memoryValues, timeout, unit);
             }
+            values.putAll(clusterValues);
+        }
+        return values;
+    }
+
+    /**
+     * 把二级缓存中读到的空值写入内存缓存，过期时间不超过二级缓存的剩余时间和nullTimeout，
+     * 避免二级缓存的空值过期、数据已经创建后当前节点仍然返回null
+     *
+     * @param key
+     * @param nullTimeout 空值的过期时间，单位与unit一致，为0时只按二级缓存的剩余时间
+     * @param unit
+     */
+    private void putNullMemoryCache(String key, long nullTimeout, TimeUnit unit) {
+        long expire = clusterCacheHandler.getExpire(key);
+        long max = nullTimeout > 0 ? unit.toMillis(nullTimeout) : Long.MAX_VALUE;
+        //二级缓存中永不过期的空值按nullTimeout处理，没有配置时不写入内存缓存
+        if (expire == -1) {
+            expire = nullTimeout > 0 ? max : 0;
+        }
+        expire = Math.min(expire, max);
+        if (expire > 0) {
+            memoryCacheHandler.putCache(key, NullValue.INSTANCE, expire, TimeUnit.MILLISECONDS);
         }
-        return value;
     }
 
     /**
@@ -223,20 +979,42 @@ public class CacheAop {
      * @return
      */
     private Long getTimeout(CacheGet cacheGet) {
-        boolean randomTimeout = cacheGet.isRandomTimeout();
+        return getTimeout(cacheGet.isRandomTimeout(), cacheGet.timeout(), cacheGet.maxTimeout(), cacheGet.minTimeout());
+    }
 
+    /**
+     * 获取过期时间
+     *
+     * @param randomTimeout 是否随机过期时间
+     * @param timeout
+     * @param maxTimeout
+     * @param minTimeout
+     * @return
+     */
+    private Long getTimeout(boolean randomTimeout, long timeout, long maxTimeout, long minTimeout) {
         //如果设置了随机时间
         if (randomTimeout) {
-            //获取最大值
-            long maxTimeout = cacheGet.maxTimeout();
-            //获取最小值
-            long minTimeout = cacheGet.minTimeout();
-
             return (long) (Math.random() * (maxTimeout - minTimeout)) + minTimeout;
         } else {
             //如果没有设置随机时间
-            return cacheGet.timeout();
+            return timeout;
+        }
+    }
+
+    /**
+     * 查找对象所在的参数位置
+     *
+     * @param args
+     * @param arg
+     * @return 不是方法参数时返回-1
+     */
+    private int indexOf(Object[] args, Object arg) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] == arg) {
+                return i;
+            }
         }
+        return -1;
     }
 
     /**
@@ -0,0 +1,98 @@
+package com.jumper.common.cache.aop;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.ast.Literal;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * 预编译的缓存注解表达式
+ * <p>
+ * 表达式只解析一次，空表达式直接返回默认值，字面量表达式（如 true、'user:all'）只求值一次
+ */
+class CacheExpression {
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+
+    /**
+     * 字面量表达式求值使用的空上下文
+     */
+    private static final EvaluationContext EMPTY_CONTEXT = new StandardEvaluationContext();
+
+    /**
+     * 解析后的表达式，空表达式为null
+     */
+    private final Expression expression;
+
+    /**
+     * 是否为字面量表达式
+     */
+    private final boolean literal;
+
+    /**
+     * 字面量表达式的求值结果
+     */
+    private volatile Constant constant;
+
+    private CacheExpression(Expression expression, boolean literal) {
+        this.expression = expression;
+        this.literal = literal;
+    }
+
+    /**
+     * 解析表达式
+     *
+     * @param text
+     * @return
+     */
+    static CacheExpression parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return new CacheExpression(null, false);
+        }
+        Expression expression = PARSER.parseExpression(text);
+        boolean literal = expression instanceof SpelExpression && ((SpelExpression) expression).getAST() instanceof Literal;
+        return new CacheExpression(expression, literal);
+    }
+
+    /**
+     * 表达式求值
+     *
+     * @param context      表达式上下文，空表达式和字面量表达式不会使用，也不会触发求值上下文的创建
+     * @param type
+     * @param defaultValue 表达式为空或结果为null时返回的默认值
+     * @param <T>
+     * @return
+     */
+    <T> T getValue(CacheOperation.Context context, Class<T> type, T defaultValue) {
+        if (expression == null) {
+            return defaultValue;
+        }
+        T value;
+        if (literal) {
+            Constant current = constant;
+            if (current == null || current.type != type) {
+                current = new Constant(type, expression.getValue(EMPTY_CONTEXT, type));
+                constant = current;
+            }
+            value = type.cast(current.value);
+        } else {
+            value = expression.getValue(context.getEvaluationContext(), type);
+        }
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * 字面量表达式按类型求值的结果
+     */
+    private static class Constant {
+        private final Class<?> type;
+        private final Object value;
+
+        private Constant(Class<?> type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.jumper.common.cache.aop;
+
+import com.jumper.common.cache.application.CacheConstact;
+import com.jumper.common.cache.application.CacheProperties;
+import com.jumper.common.cache.handler.ClusterCacheHandler;
+import com.jumper.common.cache.handler.MemoryCacheHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存命名空间
+ * <p>
+ * 命名空间内缓存的实际key为 命名空间:版本号:key，版本号保存在二级缓存中keyPrefix下，并在一级缓存中短暂缓存。
+ * 整个命名空间失效时只需要递增版本号，旧版本的缓存不再被访问，等待自然过期
+ */
+@Slf4j
+public class CacheNamespace {
+
+    /**
+     * 版本号在缓存中的key前缀，实际的key还需要加上keyPrefix，共用Redis的应用之间互不影响
+     */
+    public static final String GENERATION_PREFIX = CacheConstact.INTERNAL_KEY_PREFIX + "ns:";
+
+    /**
+     * 版本号在一级缓存中的过期时间，单位秒，用于兜底其他节点未收到删除通知的情况
+     */
+    private static final long GENERATION_TIMEOUT = 60;
+
+    @Autowired
+    private MemoryCacheHandler memoryCacheHandler;
+
+    @Autowired
+    private ClusterCacheHandler clusterCacheHandler;
+
+    @Autowired
+    private CacheProperties cacheProperties;
+
+    /**
+     * 获取命名空间内缓存的实际key
+     *
+     * @param namespace
+     * @param key
+     * @return
+     */
+    public String getKey(String namespace, String key) {
+        return namespace + ":" + getGeneration(namespace) + ":" + key;
+    }
+
+    /**
+     * 获取命名空间的当前版本号
+     *
+     * @param namespace
+     * @return
+     */
+    public long getGeneration(String namespace) {
+        String generationKey = getGenerationKey(namespace);
+        Object generation = memoryCacheHandler.getCache(generationKey);
+        if (generation != null) {
+            return ((Number) generation).longValue();
+        }
+        long current = clusterCacheHandler.getGeneration(generationKey);
+        memoryCacheHandler.putCache(generationKey, current, GENERATION_TIMEOUT, TimeUnit.SECONDS);
+        return current;
+    }
+
+    /**
+     * 使整个命名空间的缓存失效
+     *
+     * @param namespace
+     * @return 新的版本号
+     */
+    public long invalidate(String namespace) {
+        String generationKey = getGenerationKey(namespace);
+        long generation = clusterCacheHandler.incrementGeneration(generationKey);
+        memoryCacheHandler.putCache(generationKey, generation, GENERATION_TIMEOUT, TimeUnit.SECONDS);
+        //通知其他节点重新读取版本号
+        memoryCacheHandler.deleteClusterCache(generationKey, false);
+        log.debug("[CACHE DELETE] - 命名空间 - {} 的版本号递增为 - {}", namespace, generation);
+        return generation;
+    }
+
+    /**
+     * 获取命名空间版本号的key
+     *
+     * @param namespace
+     * @return
+     */
+    private String getGenerationKey(String namespace) {
+        return cacheProperties.getKeyPrefix() + GENERATION_PREFIX + namespace;
+    }
+}
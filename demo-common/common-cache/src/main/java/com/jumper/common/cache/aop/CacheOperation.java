@@ -0,0 +1,119 @@
+package com.jumper.common.cache.aop;
+
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存注解方法的解析结果，每个方法只解析一次
+ *
+ * @param <A> 缓存注解
+ */
+public class CacheOperation<A extends Annotation> {
+
+    private final Method method;
+
+    private final A annotation;
+
+    /**
+     * 缓存名称，用于监控指标的分组
+     */
+    private final String name;
+
+    /**
+     * 方法的参数名
+     */
+    private final String[] parameterNames;
+
+    /**
+     * 表达式 -> 预编译的表达式
+     */
+    private final Map<String, CacheExpression> expressions = new ConcurrentHashMap<>();
+
+    CacheOperation(Method method, A annotation, String name, String[] parameterNames, String... expressions) {
+        this.method = method;
+        this.annotation = annotation;
+        this.name = name;
+        this.parameterNames = parameterNames;
+        for (String expression : expressions) {
+            this.expressions.computeIfAbsent(expression, CacheExpression::parse);
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public A getAnnotation() {
+        return annotation;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 创建一次方法调用的表达式上下文
+     *
+     * @param args 方法执行参数
+     * @return
+     */
+    public Context newContext(Object[] args) {
+        return new Context(args);
+    }
+
+    /**
+     * 一次方法调用的表达式上下文，同一次调用的多个表达式共用一个上下文，只在需要时才创建
+     */
+    public class Context {
+
+        private final Object[] args;
+
+        private StandardEvaluationContext evaluationContext;
+
+        private Context(Object[] args) {
+            this.args = args;
+        }
+
+        /**
+         * 表达式求值
+         *
+         * @param expression
+         * @param type
+         * @param defaultValue 表达式为空或结果为null时返回的默认值
+         * @param <T>
+         * @return
+         */
+        public <T> T getValue(String expression, Class<T> type, T defaultValue) {
+            return expressions.computeIfAbsent(expression, CacheExpression::parse).getValue(this, type, defaultValue);
+        }
+
+        /**
+         * 设置额外的表达式变量
+         *
+         * @param name
+         * @param value
+         */
+        public void setVariable(String name, Object value) {
+            getEvaluationContext().setVariable(name, value);
+        }
+
+        StandardEvaluationContext getEvaluationContext() {
+            if (evaluationContext == null) {
+                StandardEvaluationContext context = new StandardEvaluationContext();
+                for (int i = 0; i < args.length; i++) {
+                    if (parameterNames != null && i < parameterNames.length) {
+                        context.setVariable(parameterNames[i], args[i]);
+                    }
+                    context.setVariable("p" + i, args[i]);
+                    context.setVariable("a" + i, args[i]);
+                }
+                evaluationContext = context;
+            }
+            return evaluationContext;
+        }
+    }
+}
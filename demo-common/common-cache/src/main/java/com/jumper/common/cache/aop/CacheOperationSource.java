@@ -0,0 +1,88 @@
+package com.jumper.common.cache.aop;
+
+import com.jumper.common.cache.annotation.CacheDelete;
+import com.jumper.common.cache.annotation.CacheGet;
+import com.jumper.common.cache.annotation.CacheGetBatch;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存注解方法的解析缓存
+ */
+public class CacheOperationSource {
+
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    private final Map<Method, CacheOperation<CacheGet>> getOperations = new ConcurrentHashMap<>();
+
+    private final Map<Method, CacheOperation<CacheGetBatch>> getBatchOperations = new ConcurrentHashMap<>();
+
+    private final Map<Method, CacheOperation<CacheDelete>> deleteOperations = new ConcurrentHashMap<>();
+
+    /**
+     * 获取CacheGet方法的解析结果
+     *
+     * @param method
+     * @return
+     */
+    public CacheOperation<CacheGet> getCacheGet(Method method) {
+        return getOperations.computeIfAbsent(method, m -> {
+            CacheGet cacheGet = m.getAnnotation(CacheGet.class);
+            return create(m, cacheGet, cacheGet.name(), cacheGet.key(), cacheGet.namespace(), cacheGet.condition(), cacheGet.unless());
+        });
+    }
+
+    /**
+     * 获取CacheGetBatch方法的解析结果
+     *
+     * @param method
+     * @return
+     */
+    public CacheOperation<CacheGetBatch> getCacheGetBatch(Method method) {
+        return getBatchOperations.computeIfAbsent(method, m -> {
+            CacheGetBatch cacheGetBatch = m.getAnnotation(CacheGetBatch.class);
+            return create(m, cacheGetBatch, cacheGetBatch.name(), cacheGetBatch.ids(), cacheGetBatch.key(), cacheGetBatch.resultId(),
+                    cacheGetBatch.namespace(), cacheGetBatch.condition(), cacheGetBatch.unless());
+        });
+    }
+
+    /**
+     * 获取CacheDelete方法的解析结果
+     *
+     * @param method
+     * @return
+     */
+    public CacheOperation<CacheDelete> getCacheDelete(Method method) {
+        return deleteOperations.computeIfAbsent(method, m -> {
+            CacheDelete cacheDelete = m.getAnnotation(CacheDelete.class);
+            List<String> expressions = new ArrayList<>(Arrays.asList(cacheDelete.key()));
+            expressions.add(cacheDelete.namespace());
+            expressions.add(cacheDelete.condition());
+            expressions.add(cacheDelete.unless());
+            return create(m, cacheDelete, "", expressions.toArray(new String[0]));
+        });
+    }
+
+    /**
+     * 解析注解方法
+     *
+     * @param method
+     * @param annotation
+     * @param name        注解上指定的缓存名称，为空时使用 类名.方法名
+     * @param expressions 需要预编译的表达式
+     * @param <A>
+     * @return
+     */
+    private <A extends Annotation> CacheOperation<A> create(Method method, A annotation, String name, String... expressions) {
+        String cacheName = name.isEmpty() ? method.getDeclaringClass().getSimpleName() + "." + method.getName() : name;
+        return new CacheOperation<>(method, annotation, cacheName, parameterNameDiscoverer.getParameterNames(method), expressions);
+    }
+}
@@ -0,0 +1,132 @@
+package com.jumper.common.cache.aop;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 调用线程的上下文，异步加载时在缓存线程中恢复
+ * <p>
+ * 目标方法在缓存线程池中执行时，MDC、RequestContextHolder、SecurityContextHolder等基于ThreadLocal的上下文会丢失，
+ * 异步Feign等依赖这些上下文传递认证和链路信息的调用需要在执行前恢复。
+ * RequestContextHolder、SecurityContextHolder不在classpath中时忽略
+ */
+@Slf4j
+final class CallerContext {
+
+    private static final List<Accessor> ACCESSORS = new ArrayList<>();
+
+    static {
+        Accessor.register("org.springframework.web.context.request.RequestContextHolder",
+                "org.springframework.web.context.request.RequestAttributes", "getRequestAttributes", "setRequestAttributes", "resetRequestAttributes");
+        Accessor.register("org.springframework.security.core.context.SecurityContextHolder",
+                "org.springframework.security.core.context.SecurityContext", "getContext", "setContext", "clearContext");
+    }
+
+    private final Map<String, String> mdc;
+
+    private final Object[] values;
+
+    private CallerContext(Map<String, String> mdc, Object[] values) {
+        this.mdc = mdc;
+        this.values = values;
+    }
+
+    /**
+     * 在调用线程中获取上下文
+     *
+     * @return
+     */
+    static CallerContext capture() {
+        Object[] values = new Object[ACCESSORS.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ACCESSORS.get(i).get();
+        }
+        return new CallerContext(MDC.getCopyOfContextMap(), values);
+    }
+
+    /**
+     * 在调用线程的上下文中执行，执行后恢复当前线程原有的上下文
+     *
+     * @param invocation
+     * @return
+     * @throws Throwable
+     */
+    Object call(SingleFlight.Loader invocation) throws Throwable {
+        CallerContext previous = capture();
+        apply(this);
+        try {
+            return invocation.load();
+        } finally {
+            apply(previous);
+        }
+    }
+
+    private static void apply(CallerContext context) {
+        if (context.mdc == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context.mdc);
+        }
+        for (int i = 0; i < context.values.length; i++) {
+            ACCESSORS.get(i).set(context.values[i]);
+        }
+    }
+
+    /**
+     * 通过反射访问可选依赖中的ThreadLocal上下文
+     */
+    private static final class Accessor {
+
+        private final Method getter;
+
+        private final Method setter;
+
+        private final Method reset;
+
+        private Accessor(Method getter, Method setter, Method reset) {
+            this.getter = getter;
+            this.setter = setter;
+            this.reset = reset;
+        }
+
+        private static void register(String holderName, String valueName, String getter, String setter, String reset) {
+            ClassLoader classLoader = CallerContext.class.getClassLoader();
+            if (!ClassUtils.isPresent(holderName, classLoader)) {
+                return;
+            }
+            try {
+                Class<?> holder = ClassUtils.forName(holderName, classLoader);
+                Class<?> value = ClassUtils.forName(valueName, classLoader);
+                ACCESSORS.add(new Accessor(holder.getMethod(getter), holder.getMethod(setter, value), holder.getMethod(reset)));
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.debug("[CACHE GET] - 无法传递上下文 - {}", holderName, e);
+            }
+        }
+
+        private Object get() {
+            try {
+                return getter.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        private void set(Object value) {
+            try {
+                if (value == null) {
+                    reset.invoke(null);
+                } else {
+                    setter.invoke(null, value);
+                }
+            } catch (ReflectiveOperationException e) {
+                log.debug("[CACHE GET] - 恢复上下文失败 - {}", setter.getDeclaringClass().getName(), e);
+            }
+        }
+    }
+}
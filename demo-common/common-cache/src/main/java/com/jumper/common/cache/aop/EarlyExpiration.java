@@ -0,0 +1,61 @@
+package com.jumper.common.cache.aop;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 概率提前过期（XFetch）
+ * <p>
+ * 记录每个key最近一次执行目标方法的耗时delta，命中缓存时按 -delta * beta * ln(random) >= 剩余过期时间 判断是否提前刷新：
+ * 越接近过期、重建越慢的key越容易提前刷新，同时写入的key也会在不同时间刷新，避免在过期时间点集中重建
+ */
+public class EarlyExpiration {
+
+    /**
+     * key -> 最近一次重建的耗时，单位纳秒
+     */
+    private final Cache<String, Long> deltas;
+
+    /**
+     * @param maximumSize 最多记录的key数量
+     */
+    public EarlyExpiration(long maximumSize) {
+        this.deltas = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(1, TimeUnit.DAYS)
+                .build();
+    }
+
+    /**
+     * 记录重建耗时
+     *
+     * @param key
+     * @param nanos
+     */
+    public void record(String key, long nanos) {
+        deltas.put(key, nanos);
+    }
+
+    /**
+     * 判断是否需要提前刷新，没有重建耗时记录时不刷新
+     *
+     * @param key
+     * @param beta            越大越早刷新，1为XFetch推荐的默认值
+     * @param remainingMillis 剩余过期时间，单位毫秒
+     * @return
+     */
+    public boolean shouldRefresh(String key, double beta, long remainingMillis) {
+        Long delta = deltas.getIfPresent(key);
+        if (delta == null) {
+            return false;
+        }
+        //random取值(0, 1]，-ln(random)服从指数分布
+        double random = 1 - ThreadLocalRandom.current().nextDouble();
+        double gap = -TimeUnit.NANOSECONDS.toMillis(delta) * beta * Math.log(random);
+        return gap >= remainingMillis;
+    }
+
+}
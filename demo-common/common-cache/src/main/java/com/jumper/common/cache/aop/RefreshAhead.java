@@ -0,0 +1,65 @@
+package com.jumper.common.cache.aop;
+
+import com.jumper.common.cache.executor.CacheExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 缓存的提前刷新
+ * <p>
+ * 缓存进入刷新窗口后，在缓存线程池中异步重建缓存，同一个key同时只会有一个刷新任务，
+ * 刷新中的key达到上限或线程池满时直接放弃本次刷新，等待下一次命中时再次触发
+ */
+@Slf4j
+public class RefreshAhead {
+
+    /**
+     * 正在刷新中的key
+     */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final CacheExecutor cacheExecutor;
+
+    /**
+     * 同时刷新的key的最大数量，避免刷新任务占满缓存线程池
+     */
+    private final int maxRefreshing;
+
+    public RefreshAhead(CacheExecutor cacheExecutor, int maxRefreshing) {
+        this.cacheExecutor = cacheExecutor;
+        this.maxRefreshing = Math.max(maxRefreshing, 1);
+    }
+
+    /**
+     * 提交刷新任务
+     *
+     * @param key
+     * @param task
+     * @return 是否提交成功
+     */
+    public boolean refresh(String key, SingleFlight.Loader task) {
+        if (refreshing.size() >= maxRefreshing || !refreshing.add(key)) {
+            return false;
+        }
+        try {
+            cacheExecutor.execute(() -> {
+                try {
+                    task.load();
+                    log.debug("[CACHE REFRESH] - 缓存刷新完成 - {}", key);
+                } catch (Throwable e) {
+                    log.warn("[CACHE REFRESH] - 缓存刷新失败 - {}", key, e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            log.debug("[CACHE REFRESH] - 缓存线程池已满，放弃本次刷新 - {}", key);
+            return false;
+        }
+    }
+}
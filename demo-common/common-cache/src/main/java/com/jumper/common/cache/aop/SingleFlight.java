@@ -0,0 +1,166 @@
+package com.jumper.common.cache.aop;
+
+import com.jumper.common.cache.metrics.CacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 缓存重建的单飞加载器
+ * <p>
+ * 同一个key并发未命中时，只有第一个线程（leader）执行加载，其余线程等待同一个加载结果，
+ * 加载结束后立即从登记表中移除，登记表的大小只和当前正在加载的key数量有关。
+ * leader在加载过程中再次加载同一个key时（可重入）直接执行加载，不等待自己的加载结果
+ */
+@Slf4j
+public class SingleFlight {
+
+    /**
+     * 正在加载中的key
+     */
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * 等待leader加载结果的超时时间，单位毫秒
+     */
+    private final long waitTimeout;
+
+    private final CacheMetrics cacheMetrics;
+
+    public SingleFlight(long waitTimeout, CacheMetrics cacheMetrics) {
+        this.waitTimeout = waitTimeout;
+        this.cacheMetrics = cacheMetrics;
+        cacheMetrics.gauge("jumper.cache.singleflight.inflight", "正在加载中的key数量", this::inFlight);
+    }
+
+    /**
+     * 加载数据
+     *
+     * @param name   缓存名称，用于监控指标
+     * @param key    缓存的key
+     * @param check  leader加载前的二次检查（通常为重新读取缓存），返回非空时不再执行loader
+     * @param loader 真正的加载逻辑
+     * @return
+     * @throws Throwable
+     */
+    public Object load(String name, String key, Loader check, Loader loader) throws Throwable {
+        Flight flight = new Flight(Thread.currentThread());
+        Flight existing = flights.putIfAbsent(key, flight);
+
+        //当前线程成为leader
+        if (existing == null) {
+            try {
+                Object value = check.load();
+                if (value == null) {
+                    value = loader.load();
+                }
+                flight.complete(value);
+                return value;
+            } catch (Throwable e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                flights.remove(key, flight);
+            }
+        }
+
+        //当前线程就是leader，等待会一直超时
+        if (existing.leader == Thread.currentThread()) {
+            log.debug("[CACHE GET] - key - {} 重入加载，直接执行目标方法", key);
+            return loader.load();
+        }
+
+        //等待leader的加载结果
+        cacheMetrics.singleFlightWait(name);
+        try {
+            return existing.get(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("[CACHE GET] - 等待key - {} 的加载结果超时({}ms)，直接执行目标方法", key, waitTimeout);
+            return loader.load();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * 异步加载数据，等待其他调用的加载结果时不阻塞线程
+     *
+     * @param name   缓存名称，用于监控指标
+     * @param key    缓存的key
+     * @param loader 返回异步结果的加载逻辑
+     * @return 同一个key的并发调用返回同一个异步结果，调用方不能修改该结果
+     */
+    public CompletableFuture<Object> loadAsync(String name, String key, AsyncLoader loader) {
+        //异步加载不占用调用线程，没有leader线程
+        Flight flight = new Flight(null);
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            cacheMetrics.singleFlightWait(name);
+            return existing;
+        }
+        CompletableFuture<Object> load;
+        try {
+            load = loader.load();
+        } catch (Throwable e) {
+            load = new CompletableFuture<>();
+            load.completeExceptionally(e);
+        }
+        load.whenComplete((value, e) -> {
+            flights.remove(key, flight);
+            if (e != null) {
+                flight.completeExceptionally(e);
+            } else {
+                flight.complete(value);
+            }
+        });
+        return flight;
+    }
+
+    /**
+     * 当前正在加载中的key数量
+     *
+     * @return
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    /**
+     * 正在进行的加载
+     */
+    private static final class Flight extends CompletableFuture<Object> {
+
+        /**
+         * 执行加载的线程，异步加载时为null
+         */
+        private final Thread leader;
+
+        private Flight(Thread leader) {
+            this.leader = leader;
+        }
+    }
+
+    /**
+     * 加载逻辑
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Object load() throws Throwable;
+    }
+
+    /**
+     * 异步加载逻辑
+     */
+    @FunctionalInterface
+    public interface AsyncLoader {
+        CompletableFuture<Object> load() throws Throwable;
+    }
+}
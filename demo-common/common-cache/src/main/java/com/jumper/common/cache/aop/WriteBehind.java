@@ -0,0 +1,212 @@
+package com.jumper.common.cache.aop;
+
+import com.jumper.common.cache.application.CacheConstact;
+import com.jumper.common.cache.executor.CacheExecutor;
+import com.jumper.common.cache.handler.ClusterCacheHandler;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二级缓存的异步写入
+ * <p>
+ * 缓存重建时一级缓存同步写入，二级缓存的写入放入有界队列，由后台线程批量取出后通过pipeline写入，
+ * 同一个key在队列中有多次写入时只写入最后一次。删除缓存时需要先取消队列中未写入的数据；
+ * 删除与正在执行的批量写入并发时仍可能写入旧值，由缓存的过期时间兜底
+ */
+@Slf4j
+public class WriteBehind implements DisposableBean {
+
+    private final ClusterCacheHandler clusterCacheHandler;
+
+    private final CacheMetrics cacheMetrics;
+
+    private final boolean enable;
+
+    private final int batchSize;
+
+    private final CacheConstact.Overflow overflow;
+
+    private final BlockingQueue<Entry> queue;
+
+    /**
+     * key -> 最后一次写入，批量写入时只写入与此一致的数据
+     */
+    private final ConcurrentMap<String, Entry> pending = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+
+    private final Thread flusher;
+
+    public WriteBehind(ClusterCacheHandler clusterCacheHandler, CacheMetrics cacheMetrics, CacheExecutor cacheExecutor, boolean enable,
+                       int queueSize, int batchSize, CacheConstact.Overflow overflow) {
+        this.clusterCacheHandler = clusterCacheHandler;
+        this.cacheMetrics = cacheMetrics;
+        this.enable = enable;
+        this.batchSize = batchSize;
+        this.overflow = overflow;
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueSize, 1));
+        if (enable) {
+            //批量写入的线程常驻运行，单独创建而不占用缓存线程池的容量
+            this.flusher = cacheExecutor.newThread("write-behind", this::run);
+            this.flusher.start();
+            cacheMetrics.gauge("jumper.cache.writebehind.queue", "等待写入二级缓存的数据量", queue::size);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    /**
+     * 写入二级缓存，队列已满时按溢出策略处理
+     *
+     * @param key
+     * @param value
+     * @param timeout 为-1时不设置过期时间
+     * @param unit
+     */
+    public void write(String key, Object value, long timeout, TimeUnit unit) {
+        Entry entry = new Entry(key, value, timeout == -1 ? -1 : unit.toMillis(timeout));
+        pending.put(key, entry);
+        if (queue.offer(entry)) {
+            return;
+        }
+        cacheMetrics.writeBehindOverflow(overflow.name());
+        if (overflow == CacheConstact.Overflow.DISCARD_OLDEST) {
+            Entry oldest = queue.poll();
+            if (oldest != null) {
+                pending.remove(oldest.key, oldest);
+            }
+            if (queue.offer(entry)) {
+                return;
+            }
+        }
+        if (!pending.remove(key, entry)) {
+            //已经被更新的写入覆盖
+            return;
+        }
+        if (overflow == CacheConstact.Overflow.DISCARD) {
+            log.debug("[CACHE GET] - 二级缓存写入队列已满，放弃写入 - {}", key);
+            return;
+        }
+        //由调用线程直接写入
+        if (timeout == -1) {
+            clusterCacheHandler.putCache(key, value);
+        } else {
+            clusterCacheHandler.putCache(key, value, timeout, unit);
+        }
+    }
+
+    /**
+     * 取消未写入的数据
+     *
+     * @param key
+     */
+    public void cancel(String key) {
+        pending.remove(key);
+    }
+
+    /**
+     * 通过表达式取消未写入的数据
+     *
+     * @param pattern
+     */
+    public void cancelPattern(String pattern) {
+        pending.keySet().removeIf(key -> MemoryKeyIndex.matches(pattern, key));
+    }
+
+    /**
+     * 取消全部未写入的数据
+     */
+    public void cancelAll() {
+        pending.clear();
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("[CACHE GET] - 批量写入二级缓存失败，放弃本批 {} 条数据", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 按过期时间分组后批量写入
+     *
+     * @param batch
+     */
+    private void flush(List<Entry> batch) {
+        long start = System.nanoTime();
+        Map<Long, Map<String, Object>> groups = new HashMap<>();
+        int count = 0;
+        for (Entry entry : batch) {
+            //已被覆盖或取消的数据不再写入
+            if (!pending.remove(entry.key, entry)) {
+                continue;
+            }
+            groups.computeIfAbsent(entry.timeout, timeout -> new HashMap<>()).put(entry.key, entry.value);
+            count++;
+        }
+        groups.forEach((timeout, values) -> clusterCacheHandler.putAll(values, timeout, TimeUnit.MILLISECONDS));
+        long now = System.nanoTime();
+        cacheMetrics.writeBehindFlush(now - start, count);
+        for (Entry entry : batch) {
+            cacheMetrics.writeBehindLatency(now - entry.createTime);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        //停止前写入队列中剩余的数据
+        running = false;
+        flusher.join(5000);
+    }
+
+    /**
+     * 等待写入的数据
+     */
+    private static class Entry {
+        final String key;
+        final Object value;
+        //过期时间，单位毫秒，-1表示不过期
+        final long timeout;
+        final long createTime = System.nanoTime();
+
+        Entry(String key, Object value, long timeout) {
+            this.key = key;
+            this.value = value;
+            this.timeout = timeout;
+        }
+    }
+}
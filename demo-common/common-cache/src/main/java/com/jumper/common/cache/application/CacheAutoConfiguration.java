@@ -1,15 +1,49 @@
 package com.jumper.common.cache.application;
 
 import com.jumper.common.cache.aop.CacheAop;
+import com.jumper.common.cache.aop.CacheNamespace;
+import com.jumper.common.cache.aop.EarlyExpiration;
+import com.jumper.common.cache.aop.RefreshAhead;
+import com.jumper.common.cache.aop.SingleFlight;
+import com.jumper.common.cache.aop.WriteBehind;
+import com.jumper.common.cache.bloom.BloomFilterLoader;
+import com.jumper.common.cache.bloom.CacheBloomFilters;
+import com.jumper.common.cache.caffeine.CaffeineMemoryCacheHandler;
+import com.jumper.common.cache.executor.CacheExecutor;
 import com.jumper.common.cache.guava.GuavaMemoryCacheHandler;
+import com.jumper.common.cache.handler.CacheSizeEstimator;
 import com.jumper.common.cache.handler.ClusterCacheHandler;
+import com.jumper.common.cache.handler.DefaultCacheSizeEstimator;
+import com.jumper.common.cache.handler.InvalidationBatcher;
 import com.jumper.common.cache.handler.MemoryCacheHandler;
+import com.jumper.common.cache.hotkey.HotKeyCache;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import com.jumper.common.cache.offheap.OffHeapMemoryCacheHandler;
+import com.jumper.common.cache.redis.CacheSerializer;
 import com.jumper.common.cache.redis.RedisClusterCacheHandler;
+import com.jumper.common.cache.snapshot.CacheSnapshot;
+import com.jumper.common.cache.snapshot.InvalidationStream;
+import com.jumper.common.cache.tracking.InvalidationSource;
+import com.jumper.common.cache.tracking.LettuceInvalidationSource;
+import com.jumper.common.cache.tracking.TrackingMemoryCacheHandler;
+import com.jumper.common.cache.warmup.CacheWarmup;
+import com.jumper.common.cache.warmup.CacheWarmupLoader;
+import com.jumper.common.event.apply.utils.EventUtils;
+import io.lettuce.core.RedisURI;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.stream.Collectors;
+
 /**
  * 相关缓存的自动配置
  */
@@ -24,6 +58,24 @@ public class CacheAutoConfiguration {
         return new GuavaMemoryCacheHandler<>();
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = "jumper.cache", value = "memoryType", havingValue = "CAFFEINE")
+    public MemoryCacheHandler getCaffeineMemoryCacheHandler(){
+        return new CaffeineMemoryCacheHandler<>();
+    }
+
+
+    @Bean
+    @ConditionalOnProperty(prefix = "jumper.cache", value = "memoryType", havingValue = "REDIS_TRACKING")
+    public MemoryCacheHandler getTrackingMemoryCacheHandler(){
+        return new TrackingMemoryCacheHandler<>();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "jumper.cache", value = "memoryType", havingValue = "OFFHEAP")
+    public MemoryCacheHandler getOffHeapMemoryCacheHandler(){
+        return new OffHeapMemoryCacheHandler<>();
+    }
 
     @Bean
     @ConditionalOnProperty(prefix = "jumper.cache", value = "clusterType", havingValue = "REDIS", matchIfMissing = true)
@@ -32,6 +84,186 @@ public class CacheAutoConfiguration {
     }
 
 
+    /**
+     * 一级缓存的内存占用估算，可以注册自定义实现替换
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public CacheSizeEstimator getCacheSizeEstimator(){
+        return new DefaultCacheSizeEstimator();
+    }
+
+    /**
+     * 缓存的监控指标，没有MeterRegistry时使用不输出任何指标的空实现
+     * @param meterRegistry
+     * @return
+     */
+    @Bean
+    public CacheMetrics getCacheMetrics(ObjectProvider<MeterRegistry> meterRegistry){
+        return new CacheMetrics(meterRegistry.getIfAvailable(CompositeMeterRegistry::new));
+    }
+
+    /**
+     * 缓存后台任务专用的线程池
+     * @param cacheProperties
+     * @param cacheMetrics
+     * @return
+     */
+    @Bean
+    public CacheExecutor getCacheExecutor(CacheProperties cacheProperties, CacheMetrics cacheMetrics){
+        return new CacheExecutor(cacheProperties.getExecutorThreads(), cacheProperties.getExecutorQueueSize(),
+                cacheProperties.isExecutorVirtual(), cacheMetrics);
+    }
+
+    /**
+     * 集群一级缓存失效消息的合并发送，没有EventUtils时不通知其他节点
+     * @param eventUtils
+     * @param invalidationStream
+     * @param cacheExecutor
+     * @param cacheProperties
+     * @return
+     */
+    @Bean
+    public InvalidationBatcher getInvalidationBatcher(ObjectProvider<EventUtils> eventUtils, ObjectProvider<InvalidationStream> invalidationStream,
+                                                      CacheExecutor cacheExecutor, CacheProperties cacheProperties){
+        return new InvalidationBatcher(eventUtils.getIfAvailable(), invalidationStream.getIfAvailable(), cacheExecutor,
+                cacheProperties.getInvalidationDelay(), cacheProperties.getInvalidationBatchSize());
+    }
+
+    /**
+     * 一级缓存失效记录，记录在keyPrefix下的Stream中
+     * @param redissonClient
+     * @param cacheProperties
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "jumper.cache", value = "snapshotEnable", havingValue = "true")
+    public InvalidationStream getInvalidationStream(RedissonClient redissonClient, CacheProperties cacheProperties){
+        return new InvalidationStream(redissonClient, cacheProperties.getKeyPrefix() + CacheConstact.INTERNAL_KEY_PREFIX + "invalidations",
+                cacheProperties.getSnapshotStreamMaxLen());
+    }
+
+    /**
+     * 一级缓存的本地快照
+     * @param memoryCacheHandler
+     * @param invalidationStream
+     * @param cacheSerializer
+     * @param cacheExecutor
+     * @param cacheMetrics
+     * @param cacheProperties
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "jumper.cache", value = "snapshotEnable", havingValue = "true")
+    public CacheSnapshot getCacheSnapshot(MemoryCacheHandler memoryCacheHandler, InvalidationStream invalidationStream, CacheSerializer cacheSerializer,
+                                          CacheExecutor cacheExecutor, CacheMetrics cacheMetrics, CacheProperties cacheProperties){
+        return new CacheSnapshot(memoryCacheHandler, invalidationStream, cacheSerializer, cacheExecutor, cacheMetrics,
+                cacheProperties.getSnapshotFile(), cacheProperties.getSnapshotInterval());
+    }
+
+    /**
+     * 缓存重建的单飞加载器
+     * @param cacheProperties
+     * @param cacheMetrics
+     * @return
+     */
+    @Bean
+    public SingleFlight getSingleFlight(CacheProperties cacheProperties, CacheMetrics cacheMetrics){
+        return new SingleFlight(cacheProperties.getSingleFlightTimeout(), cacheMetrics);
+    }
+
+    /**
+     * 热点key的识别与常驻
+     * @param cacheProperties
+     * @param cacheMetrics
+     * @return
+     */
+    @Bean
+    public HotKeyCache getHotKeyCache(CacheProperties cacheProperties, CacheMetrics cacheMetrics){
+        return new HotKeyCache(cacheProperties.isHotKeyEnable(), cacheProperties.getHotKeyThreshold(),
+                cacheProperties.getHotKeyTopN(), cacheProperties.getHotKeySketchWidth(), cacheProperties.isHotKeyExportKeys(), cacheMetrics);
+    }
+
+    /**
+     * 布隆过滤器，每个BloomFilterLoader对应一个布隆过滤器
+     * @param loaders
+     * @param redissonClient
+     * @param cacheExecutor
+     * @return
+     */
+    @Bean
+    public CacheBloomFilters getCacheBloomFilters(ObjectProvider<BloomFilterLoader> loaders, RedissonClient redissonClient, CacheExecutor cacheExecutor){
+        return new CacheBloomFilters(loaders.orderedStream().collect(Collectors.toList()), redissonClient, cacheExecutor);
+    }
+
+    /**
+     * 缓存的提前刷新
+     * @param cacheExecutor
+     * @param cacheProperties
+     * @return
+     */
+    @Bean
+    public RefreshAhead getRefreshAhead(CacheExecutor cacheExecutor, CacheProperties cacheProperties){
+        return new RefreshAhead(cacheExecutor, cacheProperties.getRefreshQueueSize());
+    }
+
+    /**
+     * 二级缓存的异步写入
+     * @param clusterCacheHandler
+     * @param cacheProperties
+     * @param cacheMetrics
+     * @param cacheExecutor
+     * @return
+     */
+    @Bean
+    public WriteBehind getWriteBehind(ClusterCacheHandler clusterCacheHandler, CacheProperties cacheProperties, CacheMetrics cacheMetrics, CacheExecutor cacheExecutor){
+        return new WriteBehind(clusterCacheHandler, cacheMetrics, cacheExecutor, cacheProperties.isWriteBehind(), cacheProperties.getWriteBehindQueueSize(),
+                cacheProperties.getWriteBehindBatchSize(), cacheProperties.getWriteBehindOverflow());
+    }
+
+    /**
+     * 概率提前过期，记录的key数量与一级缓存的最大条数一致
+     * @param cacheProperties
+     * @return
+     */
+    @Bean
+    public EarlyExpiration getEarlyExpiration(CacheProperties cacheProperties){
+        return new EarlyExpiration(cacheProperties.getMaximumSize());
+    }
+
+    /**
+     * 启动时的缓存预热，热点key记录在keyPrefix下的有序集合中
+     * @param memoryCacheHandler
+     * @param clusterCacheHandler
+     * @param hotKeyCache
+     * @param redissonClient
+     * @param cacheExecutor
+     * @param cacheMetrics
+     * @param loaders
+     * @param cacheProperties
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "jumper.cache", value = "warmupEnable", havingValue = "true")
+    public CacheWarmup getCacheWarmup(MemoryCacheHandler memoryCacheHandler, ClusterCacheHandler clusterCacheHandler, HotKeyCache hotKeyCache,
+                                      RedissonClient redissonClient, CacheExecutor cacheExecutor, CacheMetrics cacheMetrics,
+                                      ObjectProvider<CacheWarmupLoader> loaders, CacheProperties cacheProperties){
+        return new CacheWarmup(memoryCacheHandler, clusterCacheHandler, hotKeyCache, redissonClient, cacheExecutor, cacheMetrics,
+                loaders.orderedStream().collect(Collectors.toList()), cacheProperties.getKeyPrefix() + CacheConstact.INTERNAL_KEY_PREFIX + "hotkeys",
+                cacheProperties.getWarmupTopN(), cacheProperties.getWarmupBatchSize(), cacheProperties.getWarmupTimeBudget(),
+                cacheProperties.getWarmupTimeout(), cacheProperties.getHotKeyRecordInterval());
+    }
+
+    /**
+     * 缓存命名空间
+     * @return
+     */
+    @Bean
+    public CacheNamespace getCacheNamespace(){
+        return new CacheNamespace();
+    }
+
     /**
      * 配置aop
      * @return
@@ -40,4 +272,38 @@ public class CacheAutoConfiguration {
     public CacheAop getCacheAop(){
         return new CacheAop();
     }
+
+    /**
+     * Lettuce是可选依赖，失效通知的配置放在单独的类中，只使用Jedis时不会加载Lettuce的类
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.lettuce.core.RedisClient")
+    static class LettuceTrackingConfiguration {
+
+        /**
+         * 一级缓存的失效通知，默认使用独立的Lettuce连接订阅Redis的CLIENT TRACKING，只支持单机Redis
+         * @param redisProperties
+         * @return
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "jumper.cache", value = "memoryType", havingValue = "REDIS_TRACKING")
+        public InvalidationSource getInvalidationSource(RedisProperties redisProperties){
+            if (redisProperties.getCluster() != null || redisProperties.getSentinel() != null) {
+                throw new IllegalStateException("REDIS_TRACKING只支持单机Redis，集群需要在每个主节点上开启跟踪");
+            }
+            RedisURI redisURI;
+            if (redisProperties.getUrl() != null) {
+                redisURI = RedisURI.create(redisProperties.getUrl());
+            } else {
+                RedisURI.Builder builder = RedisURI.builder().withHost(redisProperties.getHost()).withPort(redisProperties.getPort())
+                        .withDatabase(redisProperties.getDatabase()).withSsl(redisProperties.isSsl());
+                if (redisProperties.getPassword() != null) {
+                    builder.withPassword(redisProperties.getPassword().toCharArray());
+                }
+                redisURI = builder.build();
+            }
+            return new LettuceInvalidationSource(redisURI);
+        }
+    }
 }
@@ -2,11 +2,22 @@ package com.jumper.common.cache.application;
 
 public class CacheConstact {
 
+    /**
+     * 缓存自身使用的key（失效记录、热点key、命名空间版本号等）在keyPrefix之后的前缀，
+     * 二级缓存的表达式删除和清空全部缓存时跳过这些key
+     */
+    public static final String INTERNAL_KEY_PREFIX = "jumper:cache:";
+
     /**
      * 内存缓存类型枚举
      */
     public enum Memory {
-        GUAVA;
+        GUAVA,
+        CAFFEINE,
+        //Caffeine + Redis的CLIENT TRACKING失效通知，默认的失效通知需要引入Lettuce
+        REDIS_TRACKING,
+        //缓存值序列化后存放在堆外内存
+        OFFHEAP;
     }
 
     /**
@@ -15,4 +26,26 @@ public class CacheConstact {
     public enum Cluster {
         REDIS;
     }
+
+    /**
+     * 二级缓存异步写入队列已满时的处理方式
+     */
+    public enum Overflow {
+        //由调用线程直接写入
+        CALLER_RUNS,
+        //放弃本次写入
+        DISCARD,
+        //放弃队列中最早的写入
+        DISCARD_OLDEST;
+    }
+
+    /**
+     * 二级缓存值的序列化方式枚举
+     */
+    public enum Serializer {
+        //使用注入的RedisTemplate自身的序列化方式
+        TEMPLATE,
+        JDK,
+        KRYO;
+    }
 }
@@ -23,4 +23,202 @@ public class CacheProperties{
      * 二级缓存类型
      */
     CacheConstact.Cluster clusterType;
+
+    /**
+     * 二级缓存值的序列化方式，TEMPLATE为使用注入的RedisTemplate，其余方式使用缓存独立的RedisTemplate，
+     * key按字符串序列化
+     */
+    CacheConstact.Serializer serializer = CacheConstact.Serializer.TEMPLATE;
+
+    /**
+     * 二级缓存值的压缩阈值，单位字节，序列化后超过该大小时使用LZ4压缩，小于等于0时不压缩，serializer为TEMPLATE时无效
+     */
+    int compressThreshold = 1024;
+
+    /**
+     * 缓存key的统一前缀，删除全部缓存时只删除二级缓存中该前缀下的key
+     */
+    String keyPrefix = "";
+
+    /**
+     * 等待其他线程重建缓存的超时时间，单位毫秒，超时后直接执行目标方法
+     */
+    long singleFlightTimeout = 3000;
+
+    /**
+     * 一级缓存的最大条数
+     */
+    long maximumSize = 100000;
+
+    /**
+     * 一级缓存的最大内存占用，单位字节，大于0时按缓存值估算的大小淘汰，maximumSize失效
+     */
+    long maximumWeight = 0;
+
+    /**
+     * 堆外一级缓存的容量，单位字节，memoryType为OFFHEAP时生效
+     */
+    long offHeapSize = 256L * 1024 * 1024;
+
+    /**
+     * 堆外一级缓存的段数，每段一把锁
+     */
+    int offHeapSegments = 16;
+
+    /**
+     * 堆外一级缓存的块大小，单位字节，缓存值按块分配内存
+     */
+    int offHeapBlockSize = 256;
+
+    /**
+     * 堆外一级缓存的内存映射文件路径，为空时使用直接内存
+     */
+    String offHeapFile = "";
+
+    /**
+     * 二级缓存通过表达式删除时，每批遍历和删除的key数量
+     */
+    int patternDeleteBatchSize = 500;
+
+    /**
+     * 二级缓存通过表达式删除时，批次之间的间隔，单位毫秒
+     */
+    long patternDeleteInterval = 5;
+
+    /**
+     * 前置删除时等待二级缓存表达式删除完成的超时时间，单位毫秒
+     */
+    long patternDeleteTimeout = 10000;
+
+    /**
+     * 异步刷新缓存的线程数，已废弃，刷新任务在缓存线程池中执行，线程数通过executorThreads配置
+     */
+    @Deprecated
+    int refreshThreads = 4;
+
+    /**
+     * 同时刷新的key的最大数量，超过时放弃刷新
+     */
+    int refreshQueueSize = 1000;
+
+    /**
+     * 是否开启启动预热，开启后定时把热点key记录到Redis，启动时加载到一级缓存，需要同时开启hotKeyEnable
+     */
+    boolean warmupEnable = false;
+
+    /**
+     * 启动时预热的热点key数量，也是Redis中保留的热点key数量
+     */
+    int warmupTopN = 1000;
+
+    /**
+     * 预热时每批从二级缓存加载的key数量
+     */
+    int warmupBatchSize = 200;
+
+    /**
+     * 预热的时间预算，单位毫秒，超过后放弃剩余的key
+     */
+    long warmupTimeBudget = 30000;
+
+    /**
+     * 预热数据在一级缓存中的最大过期时间，单位秒，不超过key在二级缓存中的剩余时间
+     */
+    long warmupTimeout = 300;
+
+    /**
+     * 记录热点key的间隔，也是统计热点key的窗口长度，单位毫秒，Redis中只保留最近3个窗口
+     */
+    long hotKeyRecordInterval = 60000;
+
+    /**
+     * 是否开启一级缓存的本地快照，开启后定时及停止时写入快照，启动时恢复，并在Redis中记录失效消息供恢复时重放
+     */
+    boolean snapshotEnable = false;
+
+    /**
+     * 快照文件路径
+     */
+    String snapshotFile = System.getProperty("java.io.tmpdir") + "/jumper-cache-l1.snapshot";
+
+    /**
+     * 定时写入快照的间隔，单位毫秒
+     */
+    long snapshotInterval = 300000;
+
+    /**
+     * Redis中保留的失效记录数量，重启期间的失效记录超过该数量时放弃快照
+     */
+    int snapshotStreamMaxLen = 100000;
+
+    /**
+     * 集群一级缓存失效消息的合并等待时间，单位毫秒，为0时不合并，每次删除立即发送；
+     * 合并后的消息旧版本节点无法处理，需要所有节点升级完成后再开启
+     */
+    long invalidationDelay = 0;
+
+    /**
+     * 每条合并的失效消息中最多包含的key数量，达到后立即发送
+     */
+    int invalidationBatchSize = 1000;
+
+    /**
+     * 缓存线程池的线程数，使用虚拟线程时无效
+     */
+    int executorThreads = 8;
+
+    /**
+     * 缓存线程池的等待队列长度，已提交未完成的任务超过executorThreads + executorQueueSize时拒绝
+     */
+    int executorQueueSize = 10000;
+
+    /**
+     * 缓存线程池是否使用虚拟线程，只在JDK21及以上生效
+     */
+    boolean executorVirtual = true;
+
+    /**
+     * 是否开启热点key识别，热点key的值常驻在当前节点，不受一级缓存淘汰的影响
+     */
+    boolean hotKeyEnable = false;
+
+    /**
+     * 热点key的监控指标是否使用原始key作为标签，key中可能包含用户id等数据，默认只输出key的hash
+     */
+    boolean hotKeyExportKeys = false;
+
+    /**
+     * 成为热点key的访问频率阈值，频率每统计一个窗口后减半
+     */
+    int hotKeyThreshold = 1000;
+
+    /**
+     * 热点key的最大数量
+     */
+    int hotKeyTopN = 100;
+
+    /**
+     * 访问频率统计每一行的计数器数量，越大误差越小
+     */
+    int hotKeySketchWidth = 16384;
+
+    /**
+     * 是否异步写入二级缓存，开启后缓存重建时只同步写入一级缓存，二级缓存由后台线程批量写入
+     */
+    boolean writeBehind = false;
+
+    /**
+     * 二级缓存异步写入的队列长度
+     */
+    int writeBehindQueueSize = 10000;
+
+    /**
+     * 二级缓存异步写入每批的最大数量
+     */
+    int writeBehindBatchSize = 200;
+
+    /**
+     * 二级缓存异步写入队列已满时的处理方式
+     */
+    CacheConstact.Overflow writeBehindOverflow = CacheConstact.Overflow.CALLER_RUNS;
 }
@@ -0,0 +1,39 @@
+package com.jumper.common.cache.bloom;
+
+import java.util.function.Consumer;
+
+/**
+ * 布隆过滤器的数据加载，注册为Bean后自动创建同名的布隆过滤器
+ * <p>
+ * 共享的布隆过滤器第一次创建时调用load写入全部已存在的key，加载完成前过滤器不拦截任何请求
+ */
+public interface BloomFilterLoader {
+
+    /**
+     * 布隆过滤器名称，与CacheGet的bloomFilter对应
+     *
+     * @return
+     */
+    String getName();
+
+    /**
+     * 预计的元素数量
+     *
+     * @return
+     */
+    long getExpectedInsertions();
+
+    /**
+     * 误判率
+     *
+     * @return
+     */
+    double getFalseProbability();
+
+    /**
+     * 加载全部已存在的key，key与CacheGet的key表达式的结果一致（不包含命名空间和keyPrefix）
+     *
+     * @param sink 接收key
+     */
+    void load(Consumer<String> sink);
+}
@@ -0,0 +1,266 @@
+package com.jumper.common.cache.bloom;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.jumper.common.cache.executor.CacheExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBloomFilter;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个布隆过滤器
+ * <p>
+ * 共享的布隆过滤器保存在Redis中，包含所有节点写入的key，是判断key是否存在的依据；
+ * 本地的布隆过滤器只是共享过滤器的部分副本，本地判断存在时直接放行，本地判断不存在时再查询共享过滤器，
+ * 共享过滤器中存在的key写入本地副本。
+ * <p>
+ * 共享过滤器按版本创建，加载完成后再切换版本指针，各节点在后台线程中定时检查指针并切换到新版本，旧版本延迟删除，
+ * 重建期间各节点继续使用旧版本。正在创建的版本同样记录在Redis中，各节点发现后新增的key同时写入新版本，
+ * 创建节点等待各节点发现后才开始加载，加载期间新增的key不会丢失。
+ * 没有可用的版本、查询共享过滤器失败时不拦截任何请求；请求线程只读取本地保存的版本，不检查版本指针
+ */
+@Slf4j
+public class CacheBloomFilter {
+
+    /**
+     * 布隆过滤器在Redis中的key前缀
+     */
+    private static final String KEY_PREFIX = "jumper:cache:bloom:";
+
+    /**
+     * 重新检查版本指针的间隔，单位毫秒
+     */
+    static final long VERSION_CHECK_INTERVAL = 5000;
+
+    /**
+     * 创建锁的过期时间，创建节点宕机后其他节点在过期后重新创建，单位分钟
+     */
+    private static final long BUILD_TIMEOUT_MINUTES = 30;
+
+    private final BloomFilterLoader loader;
+
+    private final RedissonClient redissonClient;
+
+    private final CacheExecutor cacheExecutor;
+
+    /**
+     * 当前使用的版本
+     */
+    private final RBucket<String> currentVersion;
+
+    /**
+     * 正在创建的版本，同时作为创建锁
+     */
+    private final RBucket<String> buildingVersion;
+
+    /**
+     * 当前版本的共享过滤器，没有可用版本时为null
+     */
+    private volatile RBloomFilter<String> shared;
+
+    private volatile String version;
+
+    /**
+     * 正在创建的共享过滤器，新增的key需要同时写入
+     */
+    private volatile RBloomFilter<String> building;
+
+    private volatile String buildingId;
+
+    private volatile BloomFilter<String> local;
+
+    public CacheBloomFilter(BloomFilterLoader loader, RedissonClient redissonClient, CacheExecutor cacheExecutor) {
+        this.loader = loader;
+        this.redissonClient = redissonClient;
+        this.cacheExecutor = cacheExecutor;
+        this.currentVersion = redissonClient.getBucket(KEY_PREFIX + loader.getName() + ":current", StringCodec.INSTANCE);
+        this.buildingVersion = redissonClient.getBucket(KEY_PREFIX + loader.getName() + ":building", StringCodec.INSTANCE);
+        this.local = newLocal();
+    }
+
+    /**
+     * 初始化，没有可用版本时由当前节点创建并加载，其他节点正在创建时等待创建完成
+     */
+    public void init() {
+        refresh();
+        if (shared == null) {
+            build();
+        }
+    }
+
+    /**
+     * 创建新版本的共享过滤器并加载，用于元素数量超出预期导致误判率升高的情况，创建期间继续使用旧版本。
+     * 在缓存线程池中执行，不阻塞调用线程
+     */
+    public void rebuild() {
+        try {
+            cacheExecutor.execute(this::build);
+        } catch (RejectedExecutionException e) {
+            log.warn("[CACHE BLOOM] - 布隆过滤器 - {} 线程池已满，放弃重新创建", loader.getName());
+        }
+    }
+
+    /**
+     * 判断key是否可能存在
+     *
+     * @param key
+     * @return 返回false时key一定不存在
+     */
+    public boolean mightContain(String key) {
+        RBloomFilter<String> current = shared;
+        if (current == null || local.mightContain(key)) {
+            return true;
+        }
+        //本地副本不包含其他节点写入的key，需要再查询共享过滤器
+        try {
+            if (!current.contains(key)) {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            //共享过滤器不可用时不拦截
+            log.debug("[CACHE BLOOM] - 布隆过滤器 - {} 查询失败 - {}", loader.getName(), key, e);
+            return true;
+        }
+        local.put(key);
+        return true;
+    }
+
+    /**
+     * 写入key，本地副本已存在时不再写入共享过滤器
+     *
+     * @param key
+     */
+    public void add(String key) {
+        addBuilding(building, key);
+        if (local.mightContain(key)) {
+            return;
+        }
+        RBloomFilter<String> current = shared;
+        if (current == null) {
+            //共享过滤器还未创建时，key会在加载时写入
+            return;
+        }
+        try {
+            current.add(key);
+        } catch (RuntimeException e) {
+            log.debug("[CACHE BLOOM] - 布隆过滤器 - {} 写入失败 - {}", loader.getName(), key, e);
+            return;
+        }
+        local.put(key);
+    }
+
+    public String getName() {
+        return loader.getName();
+    }
+
+    /**
+     * 获取创建锁并创建新版本，其他节点正在创建时直接返回
+     */
+    private void build() {
+        String newVersion = String.valueOf(System.currentTimeMillis());
+        if (!buildingVersion.trySet(newVersion, BUILD_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            log.info("[CACHE BLOOM] - 布隆过滤器 - {} 正在由其他节点创建", loader.getName());
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            RBloomFilter<String> filter = getFilter(newVersion);
+            filter.tryInit(loader.getExpectedInsertions(), loader.getFalseProbability());
+            building = filter;
+            buildingId = newVersion;
+            //等待其他节点发现正在创建的版本，之后新增的key会同时写入新版本
+            TimeUnit.MILLISECONDS.sleep(VERSION_CHECK_INTERVAL * 2);
+            BloomFilter<String> newLocal = newLocal();
+            long[] count = new long[1];
+            loader.load(key -> {
+                filter.add(key);
+                newLocal.put(key);
+                count[0]++;
+            });
+            String oldVersion = currentVersion.getAndSet(newVersion);
+            switchTo(newVersion, filter, newLocal);
+            if (oldVersion != null && !oldVersion.equals(newVersion)) {
+                //其他节点在下次检查前仍然使用旧版本
+                getFilter(oldVersion).expire(VERSION_CHECK_INTERVAL * 12, TimeUnit.MILLISECONDS);
+            }
+            log.info("[CACHE BLOOM] - 布隆过滤器 - {} 版本 - {} 加载了 {} 个key，耗时 {}ms", loader.getName(), newVersion,
+                    count[0], System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            building = null;
+            buildingId = null;
+            buildingVersion.delete();
+        }
+    }
+
+    /**
+     * 检查版本指针，由CacheBloomFilters的后台线程按VERSION_CHECK_INTERVAL定时调用
+     */
+    void checkVersion() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.debug("[CACHE BLOOM] - 布隆过滤器 - {} 检查版本失败", loader.getName(), e);
+            return;
+        }
+        //创建节点宕机且创建锁已过期时，由当前节点重新创建
+        if (shared == null && !buildingVersion.isExists()) {
+            try {
+                cacheExecutor.execute(this::build);
+            } catch (RejectedExecutionException e) {
+                log.debug("[CACHE BLOOM] - 布隆过滤器 - {} 线程池已满，稍后重新创建", loader.getName());
+            }
+        }
+    }
+
+    /**
+     * 读取版本指针和正在创建的版本
+     */
+    private void refresh() {
+        String current = currentVersion.get();
+        if (current != null && !current.equals(version)) {
+            switchTo(current, getFilter(current), newLocal());
+            log.info("[CACHE BLOOM] - 布隆过滤器 - {} 切换到版本 - {}", loader.getName(), current);
+        }
+        String next = buildingVersion.get();
+        if (next == null) {
+            building = null;
+        } else if (!next.equals(buildingId)) {
+            building = getFilter(next);
+        }
+        buildingId = next;
+    }
+
+    private void switchTo(String newVersion, RBloomFilter<String> filter, BloomFilter<String> newLocal) {
+        //先替换本地副本，避免旧副本中的key对新版本误判
+        local = newLocal;
+        shared = filter;
+        version = newVersion;
+    }
+
+    private void addBuilding(RBloomFilter<String> filter, String key) {
+        if (filter == null) {
+            return;
+        }
+        try {
+            filter.add(key);
+        } catch (RuntimeException e) {
+            log.debug("[CACHE BLOOM] - 布隆过滤器 - {} 写入新版本失败 - {}", loader.getName(), key, e);
+        }
+    }
+
+    private RBloomFilter<String> getFilter(String version) {
+        return redissonClient.getBloomFilter(KEY_PREFIX + loader.getName() + ":" + version, StringCodec.INSTANCE);
+    }
+
+    private BloomFilter<String> newLocal() {
+        return BloomFilter.create(Funnels.stringFunnel(Charsets.UTF_8), loader.getExpectedInsertions(), loader.getFalseProbability());
+    }
+}
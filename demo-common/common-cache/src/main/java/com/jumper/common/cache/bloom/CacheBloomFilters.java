@@ -0,0 +1,111 @@
+package com.jumper.common.cache.bloom;
+
+import com.jumper.common.cache.executor.CacheExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 布隆过滤器的注册表，每个BloomFilterLoader对应一个布隆过滤器
+ * <p>
+ * 应用启动完成后在后台线程中初始化所有布隆过滤器，不阻塞启动；
+ * 之后由单独的线程定时检查各布隆过滤器的版本，请求线程不访问版本指针
+ */
+@Slf4j
+public class CacheBloomFilters implements SmartInitializingSingleton, DisposableBean {
+
+    private final Map<String, CacheBloomFilter> filters = new ConcurrentHashMap<>();
+
+    private final CacheExecutor cacheExecutor;
+
+    private volatile boolean running = true;
+
+    private Thread versionChecker;
+
+    public CacheBloomFilters(List<BloomFilterLoader> loaders, RedissonClient redissonClient, CacheExecutor cacheExecutor) {
+        this.cacheExecutor = cacheExecutor;
+        for (BloomFilterLoader loader : loaders) {
+            filters.put(loader.getName(), new CacheBloomFilter(loader, redissonClient, cacheExecutor));
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        filters.values().forEach(filter -> CompletableFuture.runAsync(filter::init, cacheExecutor.asCallerRunsExecutor())
+                .exceptionally(e -> {
+                    log.warn("[CACHE BLOOM] - 布隆过滤器 - {} 初始化失败，暂不拦截请求", filter.getName(), e);
+                    return null;
+                }));
+        if (!filters.isEmpty()) {
+            versionChecker = cacheExecutor.newThread("bloom-version", this::runVersionChecker);
+            versionChecker.start();
+        }
+    }
+
+    /**
+     * 判断key是否可能存在，布隆过滤器不存在时返回true
+     *
+     * @param name
+     * @param key
+     * @return 返回false时key一定不存在
+     */
+    public boolean mightContain(String name, String key) {
+        CacheBloomFilter filter = filters.get(name);
+        return filter == null || filter.mightContain(key);
+    }
+
+    /**
+     * 写入key，新增数据后需要调用，否则新数据会被拦截
+     *
+     * @param name
+     * @param key
+     */
+    public void add(String name, String key) {
+        CacheBloomFilter filter = filters.get(name);
+        if (filter == null) {
+            log.warn("[CACHE BLOOM] - 布隆过滤器 - {} 不存在", name);
+            return;
+        }
+        filter.add(key);
+    }
+
+    /**
+     * 重新创建并加载布隆过滤器，在缓存线程池中异步执行
+     *
+     * @param name
+     */
+    public void rebuild(String name) {
+        CacheBloomFilter filter = filters.get(name);
+        if (filter != null) {
+            filter.rebuild();
+        }
+    }
+
+    private void runVersionChecker() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(CacheBloomFilter.VERSION_CHECK_INTERVAL);
+                filters.values().forEach(CacheBloomFilter::checkVersion);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.warn("[CACHE BLOOM] - 检查布隆过滤器版本失败", e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        if (versionChecker != null) {
+            versionChecker.interrupt();
+        }
+    }
+}
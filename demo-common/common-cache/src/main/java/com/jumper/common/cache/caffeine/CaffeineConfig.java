@@ -0,0 +1,88 @@
+package com.jumper.common.cache.caffeine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.google.common.primitives.Ints;
+import com.jumper.common.cache.application.CacheProperties;
+import com.jumper.common.cache.handler.CacheSizeEstimator;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConditionalOnExpression("'${jumper.cache.memoryType:GUAVA}' == 'CAFFEINE' or '${jumper.cache.memoryType:GUAVA}' == 'REDIS_TRACKING'")
+public class CaffeineConfig {
+
+    /**
+     * 未指定过期时间的缓存默认1天过期，与GuavaConfig保持一致
+     */
+    private static final long DEFAULT_EXPIRE_NANOS = TimeUnit.DAYS.toNanos(1);
+
+    /**
+     * 一级缓存的key索引
+     * @return
+     */
+    @Bean
+    public MemoryKeyIndex getMemoryKeyIndex() {
+        return new MemoryKeyIndex();
+    }
+
+    @Bean
+    @Qualifier(value = "caffeineCache")
+    public Cache<Object, Object> getCaffeineCache(CacheProperties cacheProperties, CacheSizeEstimator cacheSizeEstimator, MemoryKeyIndex memoryKeyIndex,
+                                                 CacheMetrics cacheMetrics) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .initialCapacity(10)//初始化容量
+                .expireAfter(new DefaultExpiry())//按条目过期，带过期时间的缓存通过expireVariably写入
+                .scheduler(Scheduler.systemScheduler())//过期的缓存按时回收，不依赖读写触发
+                .removalListener((key, value, cause) -> {
+                    //覆盖写入不需要注销key
+                    if (cause != RemovalCause.REPLACED) {
+                        memoryKeyIndex.remove(key);
+                    }
+                    if (cause.wasEvicted()) {
+                        cacheMetrics.eviction(CacheMetrics.L1, cause.name());
+                    }
+                });
+        if (cacheProperties.getMaximumWeight() > 0) {
+            //按缓存占用的内存淘汰，超出后按W-TinyLFU策略淘汰
+            builder.maximumWeight(cacheProperties.getMaximumWeight())
+                    .weigher((key, value) -> Ints.saturatedCast(cacheSizeEstimator.estimate(key) + cacheSizeEstimator.estimate(value)));
+        } else {
+            //按缓存条数淘汰，超出后按W-TinyLFU策略淘汰
+            builder.maximumSize(cacheProperties.getMaximumSize());
+        }
+        Cache<Object, Object> cache = builder.build();
+        memoryKeyIndex.bind(cache.asMap()::containsKey);
+        return cache;
+    }
+
+    /**
+     * 默认的过期策略：写入/更新后1天过期，读取不影响过期时间
+     */
+    private static class DefaultExpiry implements Expiry<Object, Object> {
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return DEFAULT_EXPIRE_NANOS;
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return DEFAULT_EXPIRE_NANOS;
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.jumper.common.cache.caffeine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.jumper.common.cache.executor.CacheExecutor;
+import com.jumper.common.cache.handler.MemoryCacheHandler;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import javax.annotation.PostConstruct;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Caffeine的JVM内存缓存策略
+ * <p>
+ * 过期时间直接交给Caffeine的按条目过期处理，缓存值不再包装
+ */
+public class CaffeineMemoryCacheHandler<K extends Serializable, V> extends MemoryCacheHandler<K, V> {
+
+    @Autowired
+    @Qualifier(value = "caffeineCache")
+    private Cache<Object, Object> cache;
+    @Autowired
+    private CacheExecutor cacheExecutor;
+    @Autowired
+    private MemoryKeyIndex memoryKeyIndex;
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    /**
+     * 按条目设置过期时间的入口
+     */
+    private Policy.VarExpiration<Object, Object> varExpiration;
+
+    @PostConstruct
+    public void init() {
+        varExpiration = cache.policy().expireVariably()
+                .orElseThrow(() -> new IllegalStateException("caffeineCache未开启按条目过期"));
+    }
+
+    @Override
+    public boolean putCache(K key, V value) {
+        cache.put(key, value);
+        memoryKeyIndex.add(key);
+        return true;
+    }
+
+    @Override
+    public boolean putCache(K key, V value, Long timeOut, TimeUnit unit) {
+        //-1表示永生，使用默认的过期时间
+        if (timeOut == -1) {
+            return this.putCache(key, value);
+        }
+        varExpiration.put(key, value, timeOut, unit);
+        memoryKeyIndex.add(key);
+        return true;
+    }
+
+    @Override
+    public boolean putAll(Map<K, V> values, Long timeOut, TimeUnit unit) {
+        if (timeOut == -1) {
+            cache.putAll(values);
+        } else {
+            values.forEach((key, value) -> varExpiration.put(key, value, timeOut, unit));
+        }
+        values.keySet().forEach(memoryKeyIndex::add);
+        return true;
+    }
+
+    @Override
+    public V getCache(K key) {
+        return (V) cache.getIfPresent(key);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        return (Map<K, V>) cache.getAllPresent(keys);
+    }
+
+    @Override
+    public long getExpire(K key) {
+        return varExpiration.getExpiresAfter(key, TimeUnit.MILLISECONDS).orElse(-2);
+    }
+
+    @Override
+    public boolean deleteCache(K key) {
+        cache.invalidate(key);
+        return true;
+    }
+
+    @Override
+    public boolean deleteAll() {
+        cache.invalidateAll();
+        return true;
+    }
+
+    @Override
+    public void forEachEntry(EntryConsumer<K, V> consumer) {
+        cache.asMap().forEach((key, value) -> {
+            long expire = varExpiration.getExpiresAfter(key, TimeUnit.MILLISECONDS).orElse(0L);
+            if (expire > 0) {
+                consumer.accept((K) key, (V) value, expire);
+            }
+        });
+    }
+
+    @Override
+    public boolean deleteCacheBatch(Collection<K> keys) {
+        cache.invalidateAll(keys);
+        return true;
+    }
+
+    /**
+     * 通过正则表达式删除key，形如 ^user: 或 ^user:.* 的前缀表达式通过索引删除
+     *
+     * @param key
+     * @return
+     */
+    @Override
+    public boolean deleteCachePattern(K key) {
+        String patten = String.valueOf(key);
+        //前缀删除只处理索引中匹配到的key，直接在当前线程执行
+        if (MemoryKeyIndex.isPrefixPattern(patten)) {
+            deleteMatched(patten);
+            return true;
+        }
+        //正则表达式需要遍历全部key，在缓存线程池中执行，线程池已满时在当前线程执行，不能丢失
+        cacheExecutor.executeOrRun(() -> deleteMatched(patten));
+        return true;
+    }
+
+    /**
+     * 删除索引中匹配的key
+     *
+     * @param patten
+     */
+    private void deleteMatched(String patten) {
+        long start = System.nanoTime();
+        Collection<Object> keys = memoryKeyIndex.match(patten);
+        cache.invalidateAll(keys);
+        cacheMetrics.patternDelete(CacheMetrics.L1, System.nanoTime() - start, keys.size());
+    }
+}
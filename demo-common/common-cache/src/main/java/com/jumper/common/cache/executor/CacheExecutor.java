@@ -0,0 +1,210 @@
+package com.jumper.common.cache.executor;
+
+import com.jumper.common.cache.metrics.CacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缓存后台任务专用的线程池
+ * <p>
+ * 表达式删除、提前刷新、异步写入、布隆过滤器初始化和预热都在这里执行，不和业务共用线程池；
+ * JDK21及以上使用虚拟线程，否则使用有界的平台线程池。两种方式都通过未完成任务数限流，超出时抛出RejectedExecutionException。
+ * <p>
+ * 没有实现Executor接口，避免影响容器中按类型注入Executor的业务代码，需要Executor时使用{@link #asExecutor()}
+ * 或{@link #asCallerRunsExecutor()}
+ */
+@Slf4j
+public class CacheExecutor implements DisposableBean {
+
+    private static final String THREAD_PREFIX = "jumper-cache-";
+
+    private final ExecutorService delegate;
+
+    private final ThreadFactory threadFactory;
+
+    private final boolean virtual;
+
+    /**
+     * 允许的最大未完成任务数
+     */
+    private final int capacity;
+
+    /**
+     * 已提交未完成的任务数
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * 正在执行的任务数
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final Executor executor = this::execute;
+
+    private final Executor callerRunsExecutor = this::executeOrRun;
+
+    private final CacheMetrics cacheMetrics;
+
+    /**
+     * @param threads      平台线程池的线程数
+     * @param queueSize    等待队列长度，最大未完成任务数为threads + queueSize
+     * @param virtual      是否尝试使用虚拟线程
+     * @param cacheMetrics
+     */
+    public CacheExecutor(int threads, int queueSize, boolean virtual, CacheMetrics cacheMetrics) {
+        this.cacheMetrics = cacheMetrics;
+        this.capacity = Math.max(threads, 1) + Math.max(queueSize, 0);
+        ThreadFactory virtualFactory = virtual ? virtualThreadFactory() : null;
+        if (virtualFactory != null) {
+            this.virtual = true;
+            this.threadFactory = virtualFactory;
+            this.delegate = newThreadPerTaskExecutor(virtualFactory);
+        } else {
+            AtomicInteger index = new AtomicInteger();
+            this.virtual = false;
+            this.threadFactory = r -> {
+                Thread thread = new Thread(r, THREAD_PREFIX + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(Math.max(threads, 1), Math.max(threads, 1), 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            this.delegate = pool;
+        }
+        log.info("[CACHE EXECUTOR] - 缓存线程池使用{}，最大未完成任务数 - {}", this.virtual ? "虚拟线程" : "平台线程", capacity);
+        cacheMetrics.gauge("jumper.cache.executor.pending", "缓存线程池已提交未完成的任务数", pending::get);
+        cacheMetrics.gauge("jumper.cache.executor.active", "缓存线程池正在执行的任务数", active::get);
+        cacheMetrics.gauge("jumper.cache.executor.queued", "缓存线程池等待执行的任务数", () -> Math.max(pending.get() - active.get(), 0));
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param command
+     * @throws RejectedExecutionException 未完成任务数达到上限或线程池已关闭
+     */
+    public void execute(Runnable command) {
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            cacheMetrics.executorRejected();
+            throw new RejectedExecutionException("cache executor is full, capacity " + capacity);
+        }
+        long submitTime = System.nanoTime();
+        try {
+            delegate.execute(() -> {
+                active.incrementAndGet();
+                cacheMetrics.executorWait(System.nanoTime() - submitTime);
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            cacheMetrics.executorRejected();
+            throw e;
+        }
+    }
+
+    /**
+     * 提交任务，线程池已满时在当前线程执行，用于不能丢弃的任务（例如缓存失效）
+     *
+     * @param command
+     */
+    public void executeOrRun(Runnable command) {
+        try {
+            execute(command);
+        } catch (RejectedExecutionException e) {
+            log.debug("[CACHE EXECUTOR] - 线程池已满，在当前线程执行");
+            command.run();
+        }
+    }
+
+    /**
+     * 创建常驻的后台线程，不占用线程池的容量
+     *
+     * @param name 线程名称，会加上统一的前缀
+     * @param task
+     * @return 未启动的线程
+     */
+    public Thread newThread(String name, Runnable task) {
+        Thread thread = threadFactory.newThread(task);
+        thread.setName(THREAD_PREFIX + name);
+        if (!virtual) {
+            thread.setDaemon(true);
+        }
+        return thread;
+    }
+
+    /**
+     * 用于CompletableFuture等需要Executor的地方
+     *
+     * @return
+     */
+    public Executor asExecutor() {
+        return executor;
+    }
+
+    /**
+     * 线程池已满时在当前线程执行的Executor，用于不能丢弃的任务
+     *
+     * @return
+     */
+    public Executor asCallerRunsExecutor() {
+        return callerRunsExecutor;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        delegate.shutdown();
+        if (!delegate.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("[CACHE EXECUTOR] - 关闭超时，放弃未完成的任务 - {}", pending.get());
+            delegate.shutdownNow();
+        }
+    }
+
+    /**
+     * 通过反射创建虚拟线程的ThreadFactory，不支持虚拟线程时返回null
+     *
+     * @return
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, THREAD_PREFIX + "virtual-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Throwable e) {
+            //JDK21以下没有该方法，JDK19、20未开启预览特性时调用会失败
+            log.debug("[CACHE EXECUTOR] - 当前JDK不支持虚拟线程 - {}", e.toString());
+            return null;
+        }
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,6 +2,12 @@ package com.jumper.common.cache.guava;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.primitives.Ints;
+import com.jumper.common.cache.application.CacheProperties;
+import com.jumper.common.cache.handler.CacheSizeEstimator;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.metrics.CacheMetrics;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -13,16 +19,52 @@ import java.util.concurrent.TimeUnit;
 @ConditionalOnProperty(prefix = "jumper.cache", value = "memoryType", havingValue = "GUAVA", matchIfMissing = true)
 public class GuavaConfig {
 
+    /**
+     * 缓存包装对象本身的大小
+     */
+    private static final int CACHE_VALUE_SIZE = 48;
+
+    /**
+     * 一级缓存的key索引
+     * @return
+     */
+    @Bean
+    public MemoryKeyIndex getMemoryKeyIndex(){
+        return new MemoryKeyIndex();
+    }
+
     @Bean
     @Qualifier(value = "guavaCache")
-    public Cache getGuavaCache(){
-        Cache<Object, Object> build = CacheBuilder.newBuilder()
+    public Cache getGuavaCache(CacheProperties cacheProperties, CacheSizeEstimator cacheSizeEstimator, MemoryKeyIndex memoryKeyIndex,
+                               CacheMetrics cacheMetrics){
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
 //                .concurrencyLevel(10)//并发级别，也就是可以同时操作的线程数
                 .initialCapacity(10)//初始化容量
-                .maximumSize(100000)//最大容量
                 .softValues()//设置value为软应用，空间不足时缓存数据可以被回收
                 .expireAfterWrite(1, TimeUnit.DAYS)//过期时间，写入数据后1天过期
-                .build();
+                .removalListener(notification -> {
+                    //覆盖写入不需要注销key
+                    if (notification.getCause() != RemovalCause.REPLACED) {
+                        memoryKeyIndex.remove(notification.getKey());
+                    }
+                    if (notification.wasEvicted()) {
+                        cacheMetrics.eviction(CacheMetrics.L1, notification.getCause().name());
+                    }
+                });
+        if (cacheProperties.getMaximumWeight() > 0) {
+            //按缓存占用的内存淘汰
+            builder.maximumWeight(cacheProperties.getMaximumWeight())
+                    .weigher((key, value) -> {
+                        Object cacheValue = value instanceof GuavaMemoryCacheHandler.CacheValue
+                                ? ((GuavaMemoryCacheHandler.CacheValue) value).getValue() : value;
+                        return Ints.saturatedCast(CACHE_VALUE_SIZE + cacheSizeEstimator.estimate(key) + cacheSizeEstimator.estimate(cacheValue));
+                    });
+        } else {
+            //按缓存条数淘汰
+            builder.maximumSize(cacheProperties.getMaximumSize());
+        }
+        Cache<Object, Object> build = builder.build();
+        memoryKeyIndex.bind(build.asMap()::containsKey);
         return build;
     }
 }
@@ -1,8 +1,11 @@
 package com.jumper.common.cache.guava;
 
-import cn.hutool.core.util.ReUtil;
 import com.google.common.cache.Cache;
+import com.jumper.common.cache.application.CacheProperties;
+import com.jumper.common.cache.executor.CacheExecutor;
 import com.jumper.common.cache.handler.MemoryCacheHandler;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.metrics.CacheMetrics;
 import lombok.Data;
 import lombok.experimental.Accessors;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,11 +13,9 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.Executor;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -28,7 +29,13 @@ public class GuavaMemoryCacheHandler<K extends Serializable, V> extends MemoryCa
     @Value("${jumper.cache.maximumMemory:50}")
     private Integer maximumMemory;
     @Autowired
-    private Executor executor;
+    private CacheProperties cacheProperties;
+    @Autowired
+    private CacheExecutor cacheExecutor;
+    @Autowired
+    private MemoryKeyIndex memoryKeyIndex;
+    @Autowired
+    private CacheMetrics cacheMetrics;
 
     @Override
     public boolean putCache(K key, V value) {
@@ -37,7 +44,9 @@ public class GuavaMemoryCacheHandler<K extends Serializable, V> extends MemoryCa
 
     @Override
     public boolean putCache(K key, V value, Long timeOut, TimeUnit unit) {
-        if (!isMaximumMemory()) {
+        //按内存占用淘汰时由缓存自身控制容量，不再校验JVM剩余内存
+        if (cacheProperties.getMaximumWeight() <= 0 && !isMaximumMemory()) {
+            cacheMetrics.putRejected(CacheMetrics.L1);
             return true;
         }
         CacheValue cacheValue = new CacheValue()
@@ -46,13 +55,54 @@ public class GuavaMemoryCacheHandler<K extends Serializable, V> extends MemoryCa
                 .setTimeout(timeOut)
                 .setUnit(unit);
         cache.put(key, cacheValue);
+        memoryKeyIndex.add(key);
+        return true;
+    }
+
+    @Override
+    public boolean putAll(Map<K, V> values, Long timeOut, TimeUnit unit) {
+        if (cacheProperties.getMaximumWeight() <= 0 && !isMaximumMemory()) {
+            cacheMetrics.putRejected(CacheMetrics.L1);
+            return true;
+        }
+        long createTime = System.currentTimeMillis();
+        Map<K, CacheValue> cacheValues = new HashMap<>(values.size() * 2);
+        values.forEach((key, value) -> cacheValues.put(key, new CacheValue()
+                .setValue(value)
+                .setCreateTime(createTime)
+                .setTimeout(timeOut)
+                .setUnit(unit)));
+        cache.putAll(cacheValues);
+        cacheValues.keySet().forEach(memoryKeyIndex::add);
         return true;
     }
 
     @Override
     public V getCache(K key) {
-        CacheValue cacheValue = (CacheValue) cache.getIfPresent(key);
+        return getValue(key, (CacheValue) cache.getIfPresent(key));
+    }
 
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> values = new HashMap<>(keys.size() * 2);
+        Map<Object, Object> present = cache.getAllPresent(keys);
+        present.forEach((key, cacheValue) -> {
+            V value = getValue((K) key, (CacheValue) cacheValue);
+            if (value != null) {
+                values.put((K) key, value);
+            }
+        });
+        return values;
+    }
+
+    /**
+     * 取出缓存对象中的值，已超时的缓存会被删除
+     *
+     * @param key
+     * @param cacheValue
+     * @return
+     */
+    private V getValue(K key, CacheValue cacheValue) {
         if (cacheValue != null) {
             Long timeout = cacheValue.getTimeout();
             //如果为-1表示永生
@@ -71,41 +121,85 @@ public class GuavaMemoryCacheHandler<K extends Serializable, V> extends MemoryCa
         return null;
     }
 
+    @Override
+    public long getExpire(K key) {
+        CacheValue cacheValue = (CacheValue) cache.getIfPresent(key);
+        if (cacheValue == null) {
+            return -2;
+        }
+        Long timeout = cacheValue.getTimeout();
+        if (timeout == -1) {
+            return -1;
+        }
+        long expire = cacheValue.getCreateTime() + cacheValue.getUnit().toMillis(timeout) - System.currentTimeMillis();
+        return expire > 0 ? expire : -2;
+    }
+
     @Override
     public boolean deleteCache(K key) {
         cache.invalidate(key);
         return true;
     }
 
+    @Override
+    public boolean deleteAll() {
+        cache.invalidateAll();
+        return true;
+    }
+
+    @Override
+    public void forEachEntry(EntryConsumer<K, V> consumer) {
+        long now = System.currentTimeMillis();
+        ((Map<K, CacheValue<V>>) cache.asMap()).forEach((key, cacheValue) -> {
+            Long timeout = cacheValue.getTimeout();
+            if (timeout == -1) {
+                consumer.accept(key, cacheValue.getValue(), -1);
+                return;
+            }
+            long expire = cacheValue.getCreateTime() + cacheValue.getUnit().toMillis(timeout) - now;
+            if (expire > 0) {
+                consumer.accept(key, cacheValue.getValue(), expire);
+            }
+        });
+    }
+
+    @Override
+    public boolean deleteCacheBatch(Collection<K> keys) {
+        cache.invalidateAll(keys);
+        return true;
+    }
+
     /**
-     * 通过正则表达式删除key
+     * 通过正则表达式删除key，形如 ^user: 或 ^user:.* 的前缀表达式通过索引删除
      *
      * @param key
      * @return
      */
     @Override
     public boolean deleteCachePattern(K key) {
-        CompletableFuture.runAsync(() -> {
-            String patten = String.valueOf(key);
-            List<String> keys = new ArrayList<>();
-            //取出缓存中的key
-            ConcurrentMap concurrentMap = cache.asMap();
-            concurrentMap.keySet().forEach(cacheKey -> {
-                String deleteKey = String.valueOf(cacheKey);
-                //通过正则校验，缓存中的key与指定key是否匹配,匹配则放入list中
-                boolean match = ReUtil.contains(patten, deleteKey);
-                if (match) {
-                    keys.add(deleteKey);
-                }
-            });
-            //删除匹配到的所有key
-            if (keys.size() > 0) {
-                cache.invalidateAll(keys);
-            }
-        }, executor);
+        String patten = String.valueOf(key);
+        //前缀删除只处理索引中匹配到的key，直接在当前线程执行
+        if (MemoryKeyIndex.isPrefixPattern(patten)) {
+            deleteMatched(patten);
+            return true;
+        }
+        //正则表达式需要遍历全部key，在缓存线程池中执行，线程池已满时在当前线程执行，不能丢失
+        cacheExecutor.executeOrRun(() -> deleteMatched(patten));
         return true;
     }
 
+    /**
+     * 删除索引中匹配的key
+     *
+     * @param patten
+     */
+    private void deleteMatched(String patten) {
+        long start = System.nanoTime();
+        Collection<Object> keys = memoryKeyIndex.match(patten);
+        cache.invalidateAll(keys);
+        cacheMetrics.patternDelete(CacheMetrics.L1, System.nanoTime() - start, keys.size());
+    }
+
     /**
      * 缓存对象
      *
@@ -113,7 +207,7 @@ public class GuavaMemoryCacheHandler<K extends Serializable, V> extends MemoryCa
      */
     @Data
     @Accessors(chain = true)
-    private static class CacheValue<V> {
+    static class CacheValue<V> {
         //缓存的值
         V value;
         //超时时间
@@ -1,6 +1,8 @@
 package com.jumper.common.cache.handler;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -28,6 +30,16 @@ public interface BaseCacheHandler<K extends Serializable, V> {
      */
     boolean putCache(K key, V value, Long timeOut, TimeUnit unit);
 
+    /**
+     * 批量添加缓存并且携带超时时间
+     *
+     * @param values
+     * @param timeOut 为-1时不设置过期时间
+     * @param unit
+     * @return
+     */
+    boolean putAll(Map<K, V> values, Long timeOut, TimeUnit unit);
+
     /**
      * 获取缓存
      *
@@ -36,6 +48,22 @@ public interface BaseCacheHandler<K extends Serializable, V> {
      */
     V getCache(K key);
 
+    /**
+     * 批量获取缓存
+     *
+     * @param keys
+     * @return 命中的缓存，未命中的key不在结果中
+     */
+    Map<K, V> getAll(Collection<K> keys);
+
+    /**
+     * 获取缓存的剩余过期时间，单位毫秒
+     *
+     * @param key
+     * @return -1表示永不过期，-2表示缓存不存在
+     */
+    long getExpire(K key);
+
     /**
      * 删除缓存
      *
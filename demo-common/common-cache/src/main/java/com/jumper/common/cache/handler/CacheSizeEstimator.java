@@ -0,0 +1,17 @@
+package com.jumper.common.cache.handler;
+
+/**
+ * 缓存值的内存占用估算，用于一级缓存按大小淘汰
+ * <p>
+ * 估算只在写入缓存时执行一次，实现类需要保证足够轻量，可以通过注册同类型的Bean替换默认实现
+ */
+public interface CacheSizeEstimator {
+
+    /**
+     * 估算对象占用的字节数
+     *
+     * @param value
+     * @return
+     */
+    long estimate(Object value);
+}
@@ -1,10 +1,64 @@
 package com.jumper.common.cache.handler;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 分布式缓存接口 - 二级缓存
  */
 public abstract class ClusterCacheHandler<K extends Serializable, V>
         implements BaseCacheHandler<K, V> {
+
+    /**
+     * 批量获取缓存的剩余过期时间，单位毫秒，默认逐个获取
+     *
+     * @param keys
+     * @return 与getExpire一致，-1表示永不过期，-2表示缓存不存在
+     */
+    public Map<K, Long> getExpireAll(Collection<K> keys) {
+        Map<K, Long> expires = new HashMap<>(keys.size() * 2);
+        for (K key : keys) {
+            expires.put(key, getExpire(key));
+        }
+        return expires;
+    }
+
+    /**
+     * 通过正则表达式删除key，不等待删除完成
+     *
+     * @param key
+     * @return
+     */
+    @Override
+    public boolean deleteCachePattern(K key) {
+        deleteCachePatternAsync(key);
+        return true;
+    }
+
+    /**
+     * 通过正则表达式异步删除key
+     *
+     * @param key
+     * @return 删除完成时返回删除的key数量
+     */
+    public abstract CompletableFuture<Long> deleteCachePatternAsync(K key);
+
+    /**
+     * 获取计数器的当前值，不存在时为0
+     *
+     * @param key
+     * @return
+     */
+    public abstract long getGeneration(String key);
+
+    /**
+     * 计数器加1
+     *
+     * @param key
+     * @return 加1后的值
+     */
+    public abstract long incrementGeneration(String key);
 }
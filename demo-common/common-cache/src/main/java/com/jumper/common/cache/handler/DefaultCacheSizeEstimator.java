@@ -0,0 +1,182 @@
+package com.jumper.common.cache.handler;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 默认的内存占用估算（按64位JVM开启指针压缩估算）
+ * <p>
+ * 常用类型直接按结构计算，业务对象通过反射遍历字段，遍历深度和集合元素个数都有限制，
+ * 超出限制的部分按已遍历元素的平均大小推算
+ */
+public class DefaultCacheSizeEstimator implements CacheSizeEstimator {
+
+    /**
+     * 对象头大小
+     */
+    private static final int OBJECT_HEADER = 16;
+
+    /**
+     * 引用大小
+     */
+    private static final int REFERENCE = 4;
+
+    /**
+     * 最大遍历深度
+     */
+    private static final int MAX_DEPTH = 4;
+
+    /**
+     * 集合最多遍历的元素个数
+     */
+    private static final int MAX_SAMPLES = 16;
+
+    /**
+     * 无法估算的对象的默认大小
+     */
+    private static final int UNKNOWN_SIZE = 256;
+
+    /**
+     * 业务对象需要遍历的字段
+     */
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    } catch (RuntimeException e) {
+                        //无法访问的字段按引用大小计算
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    @Override
+    public long estimate(Object value) {
+        return estimate(value, 0);
+    }
+
+    private long estimate(Object value, int depth) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum) {
+            if (value instanceof BigDecimal || value instanceof BigInteger) {
+                return 64;
+            }
+            return 24;
+        }
+        if (value instanceof Date) {
+            return 24;
+        }
+        if (depth >= MAX_DEPTH) {
+            return UNKNOWN_SIZE;
+        }
+        Class<?> type = value.getClass();
+        if (type.isArray()) {
+            return estimateArray(value, type.getComponentType(), depth);
+        }
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            return 48 + estimateElements(collection.iterator(), collection.size(), 32, depth);
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            long sampled = 0;
+            int count = 0;
+            Iterator<? extends Map.Entry<?, ?>> iterator = map.entrySet().iterator();
+            while (iterator.hasNext() && count < MAX_SAMPLES) {
+                Map.Entry<?, ?> entry = iterator.next();
+                sampled += 48 + estimate(entry.getKey(), depth + 1) + estimate(entry.getValue(), depth + 1);
+                count++;
+            }
+            return 64 + extrapolate(sampled, count, map.size());
+        }
+        //JDK内部类型不做反射
+        if (type.getName().startsWith("java.")) {
+            return UNKNOWN_SIZE;
+        }
+        long size = OBJECT_HEADER;
+        for (Field field : FIELDS.get(type)) {
+            Class<?> fieldType = field.getType();
+            if (fieldType.isPrimitive()) {
+                size += primitiveSize(fieldType);
+                continue;
+            }
+            size += REFERENCE;
+            try {
+                size += estimate(field.get(value), depth + 1);
+            } catch (IllegalAccessException e) {
+                //无法访问的字段只计算引用大小
+            }
+        }
+        return size;
+    }
+
+    private long estimateArray(Object array, Class<?> componentType, int depth) {
+        int length = Array.getLength(array);
+        if (componentType.isPrimitive()) {
+            return OBJECT_HEADER + (long) length * primitiveSize(componentType);
+        }
+        long sampled = 0;
+        int count = Math.min(length, MAX_SAMPLES);
+        for (int i = 0; i < count; i++) {
+            sampled += estimate(Array.get(array, i), depth + 1);
+        }
+        return OBJECT_HEADER + (long) length * REFERENCE + extrapolate(sampled, count, length);
+    }
+
+    private long estimateElements(Iterator<?> iterator, int size, int nodeSize, int depth) {
+        long sampled = 0;
+        int count = 0;
+        while (iterator.hasNext() && count < MAX_SAMPLES) {
+            sampled += nodeSize + estimate(iterator.next(), depth + 1);
+            count++;
+        }
+        return extrapolate(sampled, count, size);
+    }
+
+    /**
+     * 按已遍历元素的平均大小推算全部元素的大小
+     */
+    private long extrapolate(long sampled, int count, int size) {
+        if (count == 0 || count >= size) {
+            return sampled;
+        }
+        return sampled / count * size;
+    }
+
+    private int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * 描述：
@@ -20,6 +21,25 @@ import java.io.Serializable;
 @AllArgsConstructor
 public class DeleteCacheMessage implements Serializable {
     private static final long serialVersionUID = -3444217464590115260L;
+    /**
+     * 单个key的消息，兼容旧版本节点发送的消息
+     */
     private String key;
     private boolean deletePattern;
+    /**
+     * 是否清空全部缓存，为true时忽略key，key中的表达式只供旧版本节点使用
+     */
+    private boolean deleteAll;
+    /**
+     * 合并发送的key
+     */
+    private List<String> keys;
+    /**
+     * 合并发送的表达式
+     */
+    private List<String> patterns;
+    /**
+     * 发送消息的节点标识
+     */
+    private String origin;
 }
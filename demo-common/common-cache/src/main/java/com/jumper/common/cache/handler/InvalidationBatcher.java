@@ -0,0 +1,249 @@
+package com.jumper.common.cache.handler;
+
+import com.jumper.common.cache.executor.CacheExecutor;
+import com.jumper.common.cache.snapshot.InvalidationStream;
+import com.jumper.common.event.apply.utils.EventUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群一级缓存失效消息的合并发送
+ * <p>
+ * 删除的key先在缓冲区中停留delay毫秒，去重后合并为一条消息发送，缓冲区达到batchSize时立即发送；
+ * 消息中带有当前节点的标识，当前节点在发送前已经删除了自己的一级缓存，收到自己的消息时直接忽略。
+ * delay为0时不合并，每次删除立即按旧版本的单key格式发送，滚动升级期间兼容旧版本节点；
+ * 合并时只有一个key或表达式的批次同样按旧格式发送；清空全部缓存的消息同时带有匹配全部key的表达式。
+ * 开启了快照时，每条消息同时追加到失效记录的Stream中，供重启的节点重放
+ */
+@Slf4j
+public class InvalidationBatcher implements DisposableBean {
+
+    public static final String EVENT_TYPE = "cache-delete";
+
+    /**
+     * 当前节点的标识，每次启动生成
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final EventUtils eventUtils;
+
+    private final InvalidationStream invalidationStream;
+
+    private final long delay;
+
+    private final int batchSize;
+
+    private final Object lock = new Object();
+
+    private Set<String> keys = new LinkedHashSet<>();
+
+    private Set<String> patterns = new LinkedHashSet<>();
+
+    private boolean deleteAll;
+
+    private volatile boolean running = true;
+
+    private final Thread flusher;
+
+    /**
+     * @param eventUtils         消息发送工具，为null时不通知其他节点
+     * @param invalidationStream 失效记录，为null时不记录
+     * @param cacheExecutor
+     * @param delay              合并的等待时间，单位毫秒
+     * @param batchSize          每条消息的最大key数量
+     */
+    public InvalidationBatcher(EventUtils eventUtils, InvalidationStream invalidationStream, CacheExecutor cacheExecutor, long delay, int batchSize) {
+        this.eventUtils = eventUtils;
+        this.invalidationStream = invalidationStream;
+        this.delay = delay;
+        this.batchSize = Math.max(batchSize, 1);
+        if (isEnable() && delay > 0) {
+            this.flusher = cacheExecutor.newThread("invalidation", this::run);
+            this.flusher.start();
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * 通知其他节点删除一级缓存
+     *
+     * @param key
+     * @param deletePattern key是否为表达式
+     * @return 是否会通知其他节点
+     */
+    public boolean delete(String key, boolean deletePattern) {
+        if (!isEnable()) {
+            return false;
+        }
+        if (flusher == null) {
+            send(DeleteCacheMessage.builder().origin(nodeId).key(key).deletePattern(deletePattern).build());
+            return eventUtils != null;
+        }
+        synchronized (lock) {
+            //已经要清空全部缓存，不需要再单独删除
+            if (!deleteAll) {
+                (deletePattern ? patterns : keys).add(key);
+                lock.notifyAll();
+            }
+        }
+        return eventUtils != null;
+    }
+
+    /**
+     * 通知其他节点清空一级缓存
+     *
+     * @return 是否会通知其他节点
+     */
+    public boolean deleteAll() {
+        if (!isEnable()) {
+            return false;
+        }
+        if (flusher == null) {
+            send(deleteAllMessage());
+            return eventUtils != null;
+        }
+        synchronized (lock) {
+            deleteAll = true;
+            keys.clear();
+            patterns.clear();
+            lock.notifyAll();
+        }
+        return eventUtils != null;
+    }
+
+    /**
+     * 判断消息是否由当前节点发送
+     *
+     * @param message
+     * @return
+     */
+    public boolean isLocal(DeleteCacheMessage message) {
+        return nodeId.equals(message.getOrigin());
+    }
+
+    private void run() {
+        while (running || !isEmpty()) {
+            try {
+                synchronized (lock) {
+                    while (running && isEmpty()) {
+                        lock.wait();
+                    }
+                    //等待更多的key合并发送，缓冲区满或停止时立即发送
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                    long remaining;
+                    while (running && keys.size() + patterns.size() < batchSize
+                            && (remaining = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                }
+                flush();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Exception e) {
+                log.warn("[CACHE DELETE] - 发送缓存失效消息失败", e);
+            }
+        }
+    }
+
+    /**
+     * 取出缓冲区中的数据，按batchSize拆分发送
+     */
+    private void flush() {
+        Set<String> flushKeys;
+        Set<String> flushPatterns;
+        boolean flushAll;
+        synchronized (lock) {
+            flushKeys = keys;
+            flushPatterns = patterns;
+            flushAll = deleteAll;
+            keys = new LinkedHashSet<>();
+            patterns = new LinkedHashSet<>();
+            deleteAll = false;
+        }
+        if (flushAll) {
+            send(deleteAllMessage());
+            return;
+        }
+        //只有一个key或表达式时按旧格式发送，旧版本节点也能处理
+        if (flushKeys.size() + flushPatterns.size() == 1) {
+            boolean pattern = flushKeys.isEmpty();
+            String key = pattern ? flushPatterns.iterator().next() : flushKeys.iterator().next();
+            send(DeleteCacheMessage.builder().origin(nodeId).key(key).deletePattern(pattern).build());
+            return;
+        }
+        ArrayList<String> keyList = new ArrayList<>(flushKeys);
+        ArrayList<String> patternList = new ArrayList<>(flushPatterns);
+        for (int i = 0; i < keyList.size() || i < patternList.size(); i += batchSize) {
+            send(DeleteCacheMessage.builder().origin(nodeId)
+                    .keys(i < keyList.size() ? new ArrayList<>(keyList.subList(i, Math.min(i + batchSize, keyList.size()))) : null)
+                    .patterns(i < patternList.size() ? new ArrayList<>(patternList.subList(i, Math.min(i + batchSize, patternList.size()))) : null)
+                    .build());
+        }
+        log.debug("[CACHE DELETE] - 合并发送缓存失效消息，key - {} 个，表达式 - {} 个", keyList.size(), patternList.size());
+    }
+
+    /**
+     * 清空全部缓存的消息，同时带上匹配全部key的表达式，旧版本节点按表达式删除
+     *
+     * @return
+     */
+    private DeleteCacheMessage deleteAllMessage() {
+        return DeleteCacheMessage.builder().origin(nodeId).deleteAll(true).key(".*").deletePattern(true).build();
+    }
+
+    private boolean isEmpty() {
+        synchronized (lock) {
+            return !deleteAll && keys.isEmpty() && patterns.isEmpty();
+        }
+    }
+
+    private boolean isEnable() {
+        return eventUtils != null || invalidationStream != null;
+    }
+
+    /**
+     * 先追加失效记录再发送消息，其他节点收到消息时记录一定已经存在
+     *
+     * @param message
+     */
+    private void send(DeleteCacheMessage message) {
+        if (invalidationStream != null) {
+            try {
+                List<String> keys = message.getKeys();
+                List<String> patterns = message.getPatterns();
+                if (message.getKey() != null && !message.isDeleteAll()) {
+                    keys = message.isDeletePattern() ? null : Collections.singletonList(message.getKey());
+                    patterns = message.isDeletePattern() ? Collections.singletonList(message.getKey()) : null;
+                }
+                invalidationStream.append(keys, patterns, message.isDeleteAll());
+            } catch (Exception e) {
+                log.warn("[CACHE DELETE] - 追加失效记录失败", e);
+            }
+        }
+        if (eventUtils != null) {
+            eventUtils.sendMsg(EVENT_TYPE, message, false);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        //停止前发送缓冲区中剩余的消息
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        flusher.join(5000);
+    }
+}
@@ -1,21 +1,66 @@
 package com.jumper.common.cache.handler;
 
+import com.jumper.common.cache.aop.WriteBehind;
+import com.jumper.common.cache.hotkey.HotKeyCache;
 import com.jumper.common.event.apply.handle.EventHandler;
 import com.jumper.common.event.apply.handle.annotation.EventType;
 import com.jumper.common.event.framework.message.EventMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
 @Slf4j
-@EventType("cache-delete")
+@EventType(InvalidationBatcher.EVENT_TYPE)
 public class MemoryCacheEventHandler implements EventHandler<DeleteCacheMessage> {
 
     @Autowired
     private MemoryCacheHandler memoryCacheHandler;
 
+    @Autowired(required = false)
+    private HotKeyCache hotKeyCache;
+
+    @Autowired(required = false)
+    private WriteBehind writeBehind;
+
+    @Autowired(required = false)
+    private InvalidationBatcher invalidationBatcher;
+
     @Override
     public void eventHandler(DeleteCacheMessage message, EventMessage eventMessage) {
-        log.debug("接收到删除key：{}",message.getKey());
-        boolean result = message.isDeletePattern() ? memoryCacheHandler.deleteCachePattern(message.getKey()) : memoryCacheHandler.deleteCache(message.getKey());
-
+        //当前节点发送前已经删除了自己的缓存
+        if (invalidationBatcher != null && invalidationBatcher.isLocal(message)) {
+            return;
+        }
+        if (message.isDeleteAll()) {
+            log.debug("接收到清空缓存");
+            memoryCacheHandler.deleteAll();
+            if (hotKeyCache != null) hotKeyCache.clear();
+            if (writeBehind != null) writeBehind.cancelAll();
+            return;
+        }
+        //合并发送的消息和旧版本的单key消息统一处理
+        List<String> keys = message.getKeys() != null ? new ArrayList<>(message.getKeys()) : new ArrayList<>();
+        List<String> patterns = message.getPatterns() != null ? new ArrayList<>(message.getPatterns()) : new ArrayList<>();
+        if (message.getKey() != null) {
+            (message.isDeletePattern() ? patterns : keys).add(message.getKey());
+        }
+        log.debug("接收到删除key：{}，表达式：{}", keys, patterns);
+        if (!keys.isEmpty()) {
+            memoryCacheHandler.deleteCacheBatch(keys);
+        }
+        for (String pattern : patterns) {
+            memoryCacheHandler.deleteCachePattern(pattern);
+        }
+        if (hotKeyCache != null) {
+            keys.forEach(hotKeyCache::remove);
+            patterns.forEach(hotKeyCache::removePattern);
+        }
+        //其他节点删除了缓存，取消当前节点未写入二级缓存的旧数据
+        if (writeBehind != null) {
+            keys.forEach(writeBehind::cancel);
+            patterns.forEach(writeBehind::cancelPattern);
+        }
     }
 }
@@ -1,9 +1,9 @@
 package com.jumper.common.cache.handler;
 
-import com.jumper.common.event.apply.utils.EventUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.Serializable;
+import java.util.Collection;
 
 /**
  * 内存缓存规范 - 一级缓存
@@ -14,20 +14,69 @@ import java.io.Serializable;
 public abstract class MemoryCacheHandler<K extends Serializable, V> implements BaseCacheHandler<K, V> {
 
     @Autowired(required = false)
-    private EventUtils eventUtil;
+    private InvalidationBatcher invalidationBatcher;
 
     /**
-     * 移除集群的内存缓存
+     * 移除集群的内存缓存，短时间内的多次删除会合并为一条消息发送
      *
      * @param key
      * @return
      */
     public boolean deleteClusterCache(K key, boolean deletePattern) {
-        if (eventUtil != null) {
-            DeleteCacheMessage deleteCacheMessage = DeleteCacheMessage.builder().key(String.valueOf(key)).deletePattern(deletePattern).build();
-            eventUtil.sendMsg("cache-delete", deleteCacheMessage, false);
-            return true;
+        return invalidationBatcher != null && invalidationBatcher.delete(String.valueOf(key), deletePattern);
+    }
+
+    /**
+     * 清空集群所有节点的内存缓存
+     *
+     * @return
+     */
+    public boolean deleteClusterCacheAll() {
+        return invalidationBatcher != null && invalidationBatcher.deleteAll();
+    }
+
+    /**
+     * 批量删除当前节点的内存缓存
+     *
+     * @param keys
+     * @return
+     */
+    public boolean deleteCacheBatch(Collection<K> keys) {
+        for (K key : keys) {
+            deleteCache(key);
         }
-        return false;
+        return true;
+    }
+
+    /**
+     * 清空当前节点的内存缓存
+     *
+     * @return
+     */
+    public abstract boolean deleteAll();
+
+    /**
+     * 遍历当前节点未过期的内存缓存，用于生成快照
+     *
+     * @param consumer
+     */
+    public void forEachEntry(EntryConsumer<K, V> consumer) {
+        throw new UnsupportedOperationException(getClass().getName() + "不支持遍历缓存");
+    }
+
+    /**
+     * 内存缓存的遍历
+     *
+     * @param <K>
+     * @param <V>
+     */
+    public interface EntryConsumer<K, V> {
+
+        /**
+         * @param key
+         * @param value
+         * @param expire 剩余过期时间，单位毫秒，-1表示永不过期
+         */
+        void accept(K key, V value, long expire);
     }
 }
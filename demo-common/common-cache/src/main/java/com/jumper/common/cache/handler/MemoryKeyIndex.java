@@ -0,0 +1,212 @@
+package com.jumper.common.cache.handler;
+
+import cn.hutool.core.util.ReUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * 一级缓存的有序key索引，用于按前缀删除缓存
+ * <p>
+ * 写入缓存后登记key，缓存移除时注销key。删除表达式按正则表达式的包含匹配处理，
+ * 只有以^开头、后面是不含特殊字符的前缀（可以以.*结尾）的表达式才等价于前缀匹配，这类表达式只遍历匹配到的key，
+ * 其余表达式仍然遍历全部key进行匹配
+ */
+public class MemoryKeyIndex {
+
+    /**
+     * 正则表达式中的特殊字符
+     */
+    private static final String META_CHARS = ".*?+[](){}|\\^$";
+
+    /**
+     * 字符串形式的key -> 缓存中的key
+     */
+    private final ConcurrentSkipListMap<String, Object> keys = new ConcurrentSkipListMap<>();
+
+    /**
+     * 判断key是否仍在缓存中
+     */
+    private volatile Predicate<Object> resident = key -> false;
+
+    /**
+     * 绑定缓存，用于在注销key时判断key是否已被重新写入
+     *
+     * @param resident
+     */
+    public void bind(Predicate<Object> resident) {
+        this.resident = resident;
+    }
+
+    /**
+     * 登记key，需要在写入缓存之后调用
+     *
+     * @param key
+     */
+    public void add(Object key) {
+        keys.put(String.valueOf(key), key);
+    }
+
+    /**
+     * 注销key，由缓存的移除监听调用
+     *
+     * @param key
+     */
+    public void remove(Object key) {
+        String indexKey = String.valueOf(key);
+        keys.remove(indexKey);
+        //先注销再检查，避免与并发写入交错时丢失仍在缓存中的key
+        if (resident.test(key)) {
+            keys.put(indexKey, key);
+        }
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        keys.clear();
+    }
+
+    /**
+     * 登记的key数量
+     *
+     * @return
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * 查找匹配的key
+     *
+     * @param pattern 前缀（可以以*或.*结尾）或正则表达式
+     * @return
+     */
+    public Collection<Object> match(String pattern) {
+        String prefix = prefixOf(pattern);
+        if (prefix != null) {
+            return new ArrayList<>(prefixRange(prefix).values());
+        }
+        //无法转换为前缀，遍历全部key做正则匹配
+        List<Object> matched = new ArrayList<>();
+        keys.forEach((indexKey, key) -> {
+            if (ReUtil.contains(pattern, indexKey)) {
+                matched.add(key);
+            }
+        });
+        return matched;
+    }
+
+    /**
+     * 判断key是否匹配表达式，匹配规则与match一致
+     *
+     * @param pattern
+     * @param key
+     * @return
+     */
+    public static boolean matches(String pattern, String key) {
+        String prefix = prefixOf(pattern);
+        return prefix != null ? key.startsWith(prefix) : ReUtil.contains(pattern, key);
+    }
+
+    /**
+     * 给表达式加上固定的前缀，前缀中的特殊字符会被转义，以^开头的表达式前缀放在^之后
+     *
+     * @param prefix
+     * @param pattern
+     * @return
+     */
+    public static String withPrefix(String prefix, String pattern) {
+        if (prefix.isEmpty()) {
+            return pattern;
+        }
+        StringBuilder escaped = new StringBuilder(prefix.length() + 8);
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (META_CHARS.indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return pattern.startsWith("^") ? "^" + escaped + pattern.substring(1) : escaped + pattern;
+    }
+
+    /**
+     * 转换为二级缓存使用的glob表达式，前缀表达式转换为 前缀*，其余表达式原样返回
+     *
+     * @param pattern
+     * @return
+     */
+    public static String toGlob(String pattern) {
+        String prefix = prefixOf(pattern);
+        if (prefix == null) {
+            return pattern;
+        }
+        StringBuilder glob = new StringBuilder(prefix.length() + 1);
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if ("*?[]\\".indexOf(c) >= 0) {
+                glob.append('\\');
+            }
+            glob.append(c);
+        }
+        return glob.append('*').toString();
+    }
+
+    /**
+     * 判断是否可以按前缀删除
+     *
+     * @param pattern
+     * @return
+     */
+    public static boolean isPrefixPattern(String pattern) {
+        return prefixOf(pattern) != null;
+    }
+
+    /**
+     * 解析表达式中的前缀，只有形如 ^user: 、^user:.* 的表达式与正则匹配的结果一致，按前缀处理，其余返回null。
+     * 没有^的 user: 是包含匹配，user:* 表示 user 后跟任意个冒号，都不能按前缀处理
+     *
+     * @param pattern
+     * @return
+     */
+    private static String prefixOf(String pattern) {
+        if (!pattern.startsWith("^")) {
+            return null;
+        }
+        String expression = pattern.substring(1);
+        StringBuilder literal = new StringBuilder();
+        int end = 0;
+        while (end < expression.length()) {
+            char c = expression.charAt(end);
+            //转义的特殊字符按普通字符处理
+            if (c == '\\' && end + 1 < expression.length() && META_CHARS.indexOf(expression.charAt(end + 1)) >= 0) {
+                literal.append(expression.charAt(end + 1));
+                end += 2;
+            } else if (META_CHARS.indexOf(c) < 0) {
+                literal.append(c);
+                end++;
+            } else {
+                break;
+            }
+        }
+        String prefix = literal.toString();
+        String rest = expression.substring(end);
+        if (prefix.isEmpty()) {
+            return null;
+        }
+        if (rest.isEmpty() || ".*".equals(rest)) {
+            return prefix;
+        }
+        return null;
+    }
+
+    private ConcurrentNavigableMap<String, Object> prefixRange(String prefix) {
+        return keys.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+    }
+}
@@ -0,0 +1,114 @@
+package com.jumper.common.cache.hotkey;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 带衰减的Count-Min访问频率统计
+ * <p>
+ * 每个key在每一行中对应一个计数器，估算值取各行计数器的最小值；只递增等于最小值的计数器，减少哈希冲突带来的高估。
+ * 累计记录次数达到采样窗口后所有计数器减半，使频率反映的是最近一段时间的访问情况。
+ * 计数器的递增不加锁，并发时可能少计，对热点判断没有影响
+ */
+public class FrequencySketch {
+
+    private static final int DEPTH = 4;
+
+    /**
+     * 每一行的哈希种子
+     */
+    private static final int[] SEEDS = {0x97CB3127, 0xB4E0E6E5, 0x6C4A1E4D, 0x2F4D3E61};
+
+    private final int[] table;
+
+    private final int mask;
+
+    /**
+     * 采样窗口，累计记录次数达到该值时衰减
+     */
+    private final int sampleSize;
+
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param width 每一行的计数器数量，会向上取整为2的幂
+     */
+    public FrequencySketch(int width) {
+        int size = Integer.highestOneBit(Math.max(width, 16) - 1) << 1;
+        this.table = new int[DEPTH * size];
+        this.mask = size - 1;
+        this.sampleSize = size * 10;
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key
+     * @return 记录后的频率估算值
+     */
+    public int increment(Object key) {
+        int hash = spread(key.hashCode());
+        int min = Integer.MAX_VALUE;
+        int[] indexes = new int[DEPTH];
+        for (int i = 0; i < DEPTH; i++) {
+            indexes[i] = indexOf(hash, i);
+            min = Math.min(min, table[indexes[i]]);
+        }
+        if (min == Integer.MAX_VALUE) {
+            return min;
+        }
+        for (int index : indexes) {
+            if (table[index] == min) {
+                table[index] = min + 1;
+            }
+        }
+        return min + 1;
+    }
+
+    /**
+     * 频率估算值
+     *
+     * @param key
+     * @return
+     */
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, table[indexOf(hash, i)]);
+        }
+        return min;
+    }
+
+    /**
+     * 累计记录次数加1
+     *
+     * @return 是否到达采样窗口，到达时需要调用reset
+     */
+    public boolean sample() {
+        return additions.incrementAndGet() == sampleSize;
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    public void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] >>>= 1;
+        }
+        additions.set(0);
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash + SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xED5AD4BB;
+        hash ^= hash >>> 11;
+        hash *= 0xAC4C1B51;
+        return hash ^ (hash >>> 15);
+    }
+}
@@ -0,0 +1,284 @@
+package com.jumper.common.cache.hotkey;
+
+import com.google.common.hash.Hashing;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 热点key的识别与常驻
+ * <p>
+ * 每次读取缓存时记录访问频率，频率超过阈值的key成为热点key，热点key的值常驻在当前节点，
+ * 不受一级缓存按大小淘汰的影响。热点key最多保留topN个，超出时移除频率最低的key；
+ * 频率衰减后低于阈值一半的key不再是热点key。缓存删除时需要同步删除常驻的值
+ */
+@Slf4j
+public class HotKeyCache {
+
+    private final boolean enable;
+
+    /**
+     * 成为热点key的频率阈值
+     */
+    private final int threshold;
+
+    /**
+     * 热点key的最大数量
+     */
+    private final int topN;
+
+    /**
+     * 监控指标是否使用原始key
+     */
+    private final boolean exportKeys;
+
+    private final FrequencySketch sketch;
+
+    private final CacheMetrics cacheMetrics;
+
+    /**
+     * 热点key
+     */
+    private final ConcurrentMap<String, HotKey> hotKeys = new ConcurrentHashMap<>();
+
+    public HotKeyCache(boolean enable, int threshold, int topN, int sketchWidth, boolean exportKeys, CacheMetrics cacheMetrics) {
+        this.enable = enable;
+        this.exportKeys = exportKeys;
+        this.threshold = threshold;
+        this.topN = topN;
+        this.sketch = enable ? new FrequencySketch(sketchWidth) : null;
+        this.cacheMetrics = cacheMetrics;
+        cacheMetrics.gauge("jumper.cache.hotkeys", "当前的热点key数量", hotKeys::size);
+    }
+
+    /**
+     * 是否开启了热点key识别
+     *
+     * @return
+     */
+    public boolean isEnable() {
+        return enable;
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key
+     * @return 是否为热点key
+     */
+    public boolean record(String key) {
+        if (!enable) {
+            return false;
+        }
+        int frequency = sketch.increment(key);
+        if (sketch.sample()) {
+            decay();
+        }
+        HotKey hotKey = hotKeys.get(key);
+        if (hotKey != null) {
+            hotKey.frequency = frequency;
+            return true;
+        }
+        if (frequency < threshold) {
+            return false;
+        }
+        if (hotKeys.putIfAbsent(key, new HotKey(frequency)) == null) {
+            log.debug("[CACHE GET] - 识别到热点key - {}  频率 - {}", key, frequency);
+            if (hotKeys.size() > topN) {
+                removeColdest();
+            }
+        }
+        return hotKeys.containsKey(key);
+    }
+
+    /**
+     * 判断是否为热点key
+     *
+     * @param key
+     * @return
+     */
+    public boolean isHot(String key) {
+        return enable && hotKeys.containsKey(key);
+    }
+
+    /**
+     * 获取常驻的值
+     *
+     * @param key
+     * @return 不是热点key、还没有常驻的值或已经过期时返回null
+     */
+    public Object get(String key) {
+        HotKey hotKey = hotKeys.get(key);
+        if (hotKey == null) {
+            return null;
+        }
+        Object value = hotKey.value;
+        if (value != null && hotKey.expireAt < System.currentTimeMillis()) {
+            hotKey.value = null;
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * 常驻热点key的值，不是热点key时忽略
+     *
+     * @param key
+     * @param value
+     * @param expire 剩余过期时间，单位毫秒，-1表示永不过期
+     */
+    public void pin(String key, Object value, long expire) {
+        HotKey hotKey = hotKeys.get(key);
+        if (hotKey == null || expire == 0 || expire < -1) {
+            return;
+        }
+        hotKey.expireAt = expire == -1 ? Long.MAX_VALUE : System.currentTimeMillis() + expire;
+        hotKey.value = value;
+    }
+
+    /**
+     * 判断key的值是否常驻
+     *
+     * @param key
+     * @return
+     */
+    public boolean isPinned(String key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 获取常驻值的剩余过期时间，单位毫秒
+     *
+     * @param key
+     * @return -1表示永不过期，-2表示没有常驻
+     */
+    public long getExpire(String key) {
+        HotKey hotKey = hotKeys.get(key);
+        if (hotKey == null || hotKey.value == null) {
+            return -2;
+        }
+        if (hotKey.expireAt == Long.MAX_VALUE) {
+            return -1;
+        }
+        long expire = hotKey.expireAt - System.currentTimeMillis();
+        return expire > 0 ? expire : -2;
+    }
+
+    /**
+     * 删除常驻的值，key仍然是热点key
+     *
+     * @param key
+     */
+    public void remove(String key) {
+        HotKey hotKey = hotKeys.get(key);
+        if (hotKey != null) {
+            hotKey.value = null;
+        }
+    }
+
+    /**
+     * 通过表达式删除常驻的值
+     *
+     * @param pattern
+     */
+    public void removePattern(String pattern) {
+        hotKeys.forEach((key, hotKey) -> {
+            if (MemoryKeyIndex.matches(pattern, key)) {
+                hotKey.value = null;
+            }
+        });
+    }
+
+    /**
+     * 删除全部常驻的值
+     */
+    public void clear() {
+        hotKeys.values().forEach(hotKey -> hotKey.value = null);
+    }
+
+    /**
+     * 按频率从高到低排列的热点key
+     *
+     * @return key -> 频率
+     */
+    public Map<String, Integer> getHotKeys() {
+        List<Map.Entry<String, HotKey>> entries = new ArrayList<>(hotKeys.entrySet());
+        entries.sort(Comparator.comparingInt((Map.Entry<String, HotKey> entry) -> entry.getValue().frequency).reversed());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, HotKey> entry : entries) {
+            result.put(entry.getKey(), entry.getValue().frequency);
+        }
+        return result;
+    }
+
+    /**
+     * 频率衰减，并移除不再是热点的key
+     */
+    private void decay() {
+        sketch.reset();
+        hotKeys.forEach((key, hotKey) -> {
+            int frequency = sketch.frequency(key);
+            if (frequency < threshold / 2) {
+                hotKeys.remove(key, hotKey);
+                log.debug("[CACHE GET] - 热点key降温 - {}", key);
+            } else {
+                hotKey.frequency = frequency;
+            }
+        });
+        cacheMetrics.hotKeys(getMetricKeys());
+    }
+
+    /**
+     * 监控指标中的热点key，默认使用key的hash，避免把用户id等数据输出到监控系统
+     *
+     * @return
+     */
+    private Map<String, Integer> getMetricKeys() {
+        Map<String, Integer> hotKeys = getHotKeys();
+        if (exportKeys) {
+            return hotKeys;
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        hotKeys.forEach((key, frequency) -> result.put(Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).toString().substring(0, 16), frequency));
+        return result;
+    }
+
+    /**
+     * 移除频率最低的热点key
+     */
+    private void removeColdest() {
+        String coldest = null;
+        int min = Integer.MAX_VALUE;
+        for (Map.Entry<String, HotKey> entry : hotKeys.entrySet()) {
+            if (entry.getValue().frequency < min) {
+                min = entry.getValue().frequency;
+                coldest = entry.getKey();
+            }
+        }
+        if (coldest != null) {
+            hotKeys.remove(coldest);
+        }
+    }
+
+    /**
+     * 热点key的频率和常驻的值
+     */
+    private static class HotKey {
+        volatile int frequency;
+        volatile Object value;
+        volatile long expireAt;
+
+        HotKey(int frequency) {
+            this.frequency = frequency;
+        }
+    }
+}
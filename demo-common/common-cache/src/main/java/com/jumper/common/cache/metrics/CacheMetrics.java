@@ -0,0 +1,313 @@
+package com.jumper.common.cache.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 缓存的监控指标
+ * <p>
+ * 指标统一以jumper.cache开头，通过actuator的metrics端点查看，
+ * 创建后的指标对象会被缓存，命中率统计在热点路径上只有一次Map查找
+ */
+public class CacheMetrics {
+
+    /**
+     * 一级缓存
+     */
+    public static final String L1 = "l1";
+
+    /**
+     * 二级缓存
+     */
+    public static final String L2 = "l2";
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存名称 -> 命中率统计
+     */
+    private final Map<String, GetCounters> gets = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    /**
+     * 热点key的频率
+     */
+    private final MultiGauge hotKeys;
+
+    public CacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.hotKeys = MultiGauge.builder("jumper.cache.hotkeys.frequency")
+                .description("热点key的访问频率估算值")
+                .register(registry);
+    }
+
+    /**
+     * 缓存命中
+     *
+     * @param cache 缓存名称
+     * @param tier  L1或L2
+     */
+    public void hit(String cache, String tier) {
+        GetCounters counters = gets(cache);
+        (L1.equals(tier) ? counters.l1Hit : counters.l2Hit).increment();
+    }
+
+    /**
+     * 缓存未命中
+     *
+     * @param cache 缓存名称
+     * @param tier  L1或L2
+     */
+    public void miss(String cache, String tier) {
+        GetCounters counters = gets(cache);
+        (L1.equals(tier) ? counters.l1Miss : counters.l2Miss).increment();
+    }
+
+    /**
+     * 批量读取时的缓存命中
+     *
+     * @param cache 缓存名称
+     * @param tier  L1或L2
+     * @param count 命中的key数量
+     */
+    public void hit(String cache, String tier, long count) {
+        GetCounters counters = gets(cache);
+        (L1.equals(tier) ? counters.l1Hit : counters.l2Hit).increment(count);
+    }
+
+    /**
+     * 批量读取时的缓存未命中
+     *
+     * @param cache 缓存名称
+     * @param tier  L1或L2
+     * @param count 未命中的key数量
+     */
+    public void miss(String cache, String tier, long count) {
+        GetCounters counters = gets(cache);
+        (L1.equals(tier) ? counters.l1Miss : counters.l2Miss).increment(count);
+    }
+
+    /**
+     * 执行目标方法加载数据的耗时
+     *
+     * @param cache
+     * @param nanos
+     */
+    public void load(String cache, long nanos) {
+        timer("jumper.cache.load", "cache", cache).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 按XFetch提前刷新的次数
+     *
+     * @param cache 缓存名称
+     */
+    public void earlyRefresh(String cache) {
+        counter("jumper.cache.refresh.early", "cache", cache).increment();
+    }
+
+    /**
+     * 等待其他线程加载数据
+     *
+     * @param cache
+     */
+    public void singleFlightWait(String cache) {
+        counter("jumper.cache.singleflight.waits", "cache", cache).increment();
+    }
+
+    /**
+     * 缓存被淘汰
+     *
+     * @param tier
+     * @param cause 淘汰原因
+     */
+    public void eviction(String tier, String cause) {
+        counter("jumper.cache.evictions", "tier", tier, "cause", cause).increment();
+    }
+
+    /**
+     * 二级缓存异步写入一批数据的耗时
+     *
+     * @param nanos
+     * @param count 实际写入的数量
+     */
+    public void writeBehindFlush(long nanos, long count) {
+        timer("jumper.cache.writebehind.flush").record(nanos, TimeUnit.NANOSECONDS);
+        summary("jumper.cache.writebehind.flush.size").record(count);
+    }
+
+    /**
+     * 二级缓存异步写入从入队到写入完成的耗时
+     *
+     * @param nanos
+     */
+    public void writeBehindLatency(long nanos) {
+        timer("jumper.cache.writebehind.latency").record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 二级缓存异步写入队列已满
+     *
+     * @param policy 溢出策略
+     */
+    public void writeBehindOverflow(String policy) {
+        counter("jumper.cache.writebehind.overflow", "policy", policy).increment();
+    }
+
+    /**
+     * 被布隆过滤器拦截的请求
+     *
+     * @param filter 布隆过滤器名称
+     */
+    public void bloomReject(String filter) {
+        counter("jumper.cache.bloom.rejects", "filter", filter).increment();
+    }
+
+    /**
+     * 写入缓存被拒绝
+     *
+     * @param tier
+     */
+    public void putRejected(String tier) {
+        counter("jumper.cache.puts.rejected", "tier", tier).increment();
+    }
+
+    /**
+     * 通过表达式删除缓存的耗时及删除的key数量
+     *
+     * @param tier
+     * @param nanos
+     * @param keys
+     */
+    public void patternDelete(String tier, long nanos, long keys) {
+        timer("jumper.cache.pattern.deletes", "tier", tier).record(nanos, TimeUnit.NANOSECONDS);
+        summary("jumper.cache.pattern.deletes.keys", "tier", tier).record(keys);
+    }
+
+    /**
+     * 更新热点key的频率，旧的热点key对应的指标会被移除
+     *
+     * @param frequencies 热点key -> 频率
+     */
+    public void hotKeys(Map<String, Integer> frequencies) {
+        List<MultiGauge.Row<?>> rows = new ArrayList<>(frequencies.size());
+        frequencies.forEach((key, frequency) -> rows.add(MultiGauge.Row.of(Tags.of("key", key), frequency)));
+        hotKeys.register(rows, true);
+    }
+
+    /**
+     * 启动预热的耗时及key数量
+     *
+     * @param nanos
+     * @param requested 需要预热的key数量
+     * @param loaded    从二级缓存加载到的key数量
+     */
+    public void warmup(long nanos, long requested, long loaded) {
+        timer("jumper.cache.warmup").record(nanos, TimeUnit.NANOSECONDS);
+        counter("jumper.cache.warmup.keys", "result", "requested").increment(requested);
+        counter("jumper.cache.warmup.keys", "result", "loaded").increment(loaded);
+    }
+
+    /**
+     * 一级缓存快照的写入或恢复
+     *
+     * @param action  write或restore
+     * @param nanos
+     * @param entries 写入或恢复的条数
+     */
+    public void snapshot(String action, long nanos, long entries) {
+        timer("jumper.cache.snapshot", "action", action).record(nanos, TimeUnit.NANOSECONDS);
+        summary("jumper.cache.snapshot.entries", "action", action).record(entries);
+    }
+
+    /**
+     * 缓存线程池拒绝的任务
+     */
+    public void executorRejected() {
+        counter("jumper.cache.executor.rejected").increment();
+    }
+
+    /**
+     * 缓存线程池中的任务从提交到开始执行的等待时间
+     *
+     * @param nanos
+     */
+    public void executorWait(long nanos) {
+        timer("jumper.cache.executor.wait").record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 注册实时数值类的指标
+     *
+     * @param name
+     * @param description
+     * @param value
+     * @param tags
+     */
+    public void gauge(String name, String description, Supplier<Number> value, String... tags) {
+        Gauge.builder(name, value).description(description).tags(tags).register(registry);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    private GetCounters gets(String cache) {
+        GetCounters counters = gets.get(cache);
+        return counters != null ? counters : gets.computeIfAbsent(cache, GetCounters::new);
+    }
+
+    private Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(key(name, tags), k -> Counter.builder(name).tags(tags).register(registry));
+    }
+
+    private Timer timer(String name, String... tags) {
+        return timers.computeIfAbsent(key(name, tags), k -> Timer.builder(name).tags(tags).register(registry));
+    }
+
+    private DistributionSummary summary(String name, String... tags) {
+        return summaries.computeIfAbsent(key(name, tags), k -> DistributionSummary.builder(name).tags(tags).register(registry));
+    }
+
+    private String key(String name, String... tags) {
+        StringBuilder key = new StringBuilder(name);
+        for (String tag : tags) {
+            key.append('|').append(tag);
+        }
+        return key.toString();
+    }
+
+    /**
+     * 单个缓存的命中率统计
+     */
+    private class GetCounters {
+        private final Counter l1Hit;
+        private final Counter l1Miss;
+        private final Counter l2Hit;
+        private final Counter l2Miss;
+
+        private GetCounters(String cache) {
+            this.l1Hit = counter("jumper.cache.gets", "cache", cache, "tier", L1, "result", "hit");
+            this.l1Miss = counter("jumper.cache.gets", "cache", cache, "tier", L1, "result", "miss");
+            this.l2Hit = counter("jumper.cache.gets", "cache", cache, "tier", L2, "result", "hit");
+            this.l2Miss = counter("jumper.cache.gets", "cache", cache, "tier", L2, "result", "miss");
+        }
+    }
+}
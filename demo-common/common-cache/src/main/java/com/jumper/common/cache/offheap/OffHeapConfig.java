@@ -0,0 +1,48 @@
+package com.jumper.common.cache.offheap;
+
+import com.jumper.common.cache.application.CacheProperties;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+@ConditionalOnProperty(prefix = "jumper.cache", value = "memoryType", havingValue = "OFFHEAP")
+public class OffHeapConfig {
+
+    /**
+     * 一级缓存的key索引
+     * @return
+     */
+    @Bean
+    public MemoryKeyIndex getMemoryKeyIndex() {
+        return new MemoryKeyIndex();
+    }
+
+    /**
+     * 堆外内存的缓存存储，直接内存需要通过-XX:MaxDirectMemorySize预留足够的空间
+     * @param cacheProperties
+     * @param memoryKeyIndex
+     * @param cacheMetrics
+     * @return
+     * @throws IOException
+     */
+    @Bean
+    public OffHeapStore getOffHeapStore(CacheProperties cacheProperties, MemoryKeyIndex memoryKeyIndex, CacheMetrics cacheMetrics) throws IOException {
+        OffHeapStore store = new OffHeapStore(cacheProperties.getOffHeapSize(), cacheProperties.getMaximumSize(),
+                cacheProperties.getOffHeapSegments(), cacheProperties.getOffHeapBlockSize(), cacheProperties.getOffHeapFile(),
+                (key, cause) -> {
+                    memoryKeyIndex.remove(key);
+                    if (cause.wasEvicted()) {
+                        cacheMetrics.eviction(CacheMetrics.L1, cause.name());
+                    }
+                });
+        memoryKeyIndex.bind(store::containsKey);
+        cacheMetrics.gauge("jumper.cache.offheap.used", "堆外缓存已占用的字节数", store::usedBytes);
+        cacheMetrics.gauge("jumper.cache.offheap.entries", "堆外缓存的条数", store::size);
+        return store;
+    }
+}
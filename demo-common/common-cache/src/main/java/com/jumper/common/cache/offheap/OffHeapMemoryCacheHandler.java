@@ -0,0 +1,180 @@
+package com.jumper.common.cache.offheap;
+
+import com.jumper.common.cache.executor.CacheExecutor;
+import com.jumper.common.cache.handler.MemoryCacheHandler;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import com.jumper.common.cache.redis.CacheSerializer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于堆外内存的一级缓存策略
+ * <p>
+ * 缓存值通过二级缓存的序列化方式写入OffHeapStore，读取时反序列化，每次读取返回新的对象，
+ * 适合缓存值较大、条数较多的场景；缓存值较小且读取频繁时反序列化的开销可能高于GC的收益
+ */
+@Slf4j
+public class OffHeapMemoryCacheHandler<K extends Serializable, V> extends MemoryCacheHandler<K, V> {
+
+    /**
+     * 未指定过期时间的缓存默认1天过期，与GuavaConfig保持一致
+     */
+    private static final long DEFAULT_EXPIRE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    @Autowired
+    private OffHeapStore offHeapStore;
+    @Autowired
+    private CacheSerializer cacheSerializer;
+    @Autowired
+    private CacheExecutor cacheExecutor;
+    @Autowired
+    private MemoryKeyIndex memoryKeyIndex;
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Override
+    public boolean putCache(K key, V value) {
+        return put(key, value, DEFAULT_EXPIRE_MILLIS);
+    }
+
+    @Override
+    public boolean putCache(K key, V value, Long timeOut, TimeUnit unit) {
+        //-1表示永生，使用默认的过期时间
+        if (timeOut == -1) {
+            return this.putCache(key, value);
+        }
+        return put(key, value, unit.toMillis(timeOut));
+    }
+
+    @Override
+    public boolean putAll(Map<K, V> values, Long timeOut, TimeUnit unit) {
+        long expire = timeOut == -1 ? DEFAULT_EXPIRE_MILLIS : unit.toMillis(timeOut);
+        values.forEach((key, value) -> put(key, value, expire));
+        return true;
+    }
+
+    @Override
+    public V getCache(K key) {
+        byte[] bytes = offHeapStore.get(key);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return (V) cacheSerializer.deserialize(bytes, 0, bytes.length);
+        } catch (Exception e) {
+            //类已经变更等原因无法反序列化，按未命中处理
+            log.warn("[CACHE GET] - 堆外缓存反序列化失败 - {}", key, e);
+            offHeapStore.remove(key);
+            return null;
+        }
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> values = new HashMap<>();
+        for (K key : keys) {
+            V value = getCache(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public long getExpire(K key) {
+        return offHeapStore.getExpire(key);
+    }
+
+    @Override
+    public boolean deleteCache(K key) {
+        offHeapStore.remove(key);
+        return true;
+    }
+
+    @Override
+    public boolean deleteAll() {
+        offHeapStore.clear();
+        return true;
+    }
+
+    @Override
+    public void forEachEntry(EntryConsumer<K, V> consumer) {
+        offHeapStore.forEach((key, bytes, expireAt) -> {
+            long expire = expireAt - System.currentTimeMillis();
+            if (expire <= 0) {
+                return;
+            }
+            try {
+                consumer.accept((K) key, (V) cacheSerializer.deserialize(bytes, 0, bytes.length), expire);
+            } catch (Exception e) {
+                log.debug("[CACHE GET] - 堆外缓存反序列化失败，跳过 - {}", key);
+            }
+        });
+    }
+
+    /**
+     * 通过正则表达式删除key，形如 ^user: 或 ^user:.* 的前缀表达式通过索引删除
+     *
+     * @param key
+     * @return
+     */
+    @Override
+    public boolean deleteCachePattern(K key) {
+        String patten = String.valueOf(key);
+        //前缀删除只处理索引中匹配到的key，直接在当前线程执行
+        if (MemoryKeyIndex.isPrefixPattern(patten)) {
+            deleteMatched(patten);
+            return true;
+        }
+        //正则表达式需要遍历全部key，在缓存线程池中执行，线程池已满时在当前线程执行，不能丢失
+        cacheExecutor.executeOrRun(() -> deleteMatched(patten));
+        return true;
+    }
+
+    /**
+     * 删除索引中匹配的key
+     *
+     * @param patten
+     */
+    private void deleteMatched(String patten) {
+        long start = System.nanoTime();
+        Collection<Object> keys = memoryKeyIndex.match(patten);
+        keys.forEach(offHeapStore::remove);
+        cacheMetrics.patternDelete(CacheMetrics.L1, System.nanoTime() - start, keys.size());
+    }
+
+    /**
+     * 序列化后写入堆外内存，无法序列化或超过单段容量时放弃写入
+     *
+     * @param key
+     * @param value
+     * @param expire 过期时间，单位毫秒
+     * @return
+     */
+    private boolean put(K key, V value, long expire) {
+        byte[] bytes;
+        try {
+            bytes = cacheSerializer.serialize(value);
+        } catch (Exception e) {
+            log.warn("[CACHE GET] - 堆外缓存序列化失败 - {}", key, e);
+            offHeapStore.remove(key);
+            cacheMetrics.putRejected(CacheMetrics.L1);
+            return false;
+        }
+        if (!offHeapStore.put(key, bytes, System.currentTimeMillis() + expire)) {
+            log.debug("[CACHE GET] - 缓存值超过堆外缓存单段的容量 - {}，{}字节", key, bytes.length);
+            cacheMetrics.putRejected(CacheMetrics.L1);
+            return false;
+        }
+        memoryKeyIndex.add(key);
+        return true;
+    }
+}
@@ -0,0 +1,518 @@
+package com.jumper.common.cache.offheap;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 堆外内存的缓存存储
+ * <p>
+ * 缓存值序列化后写入直接内存或内存映射文件，堆上只保留key和条目的位置信息（首个块、长度、过期时间），
+ * GC需要扫描的对象数量和大小与缓存值无关。
+ * <p>
+ * 存储按key的hash分为多个段，每段一把锁、一块连续内存。内存按固定大小的块划分，块的前4个字节保存下一块的序号，
+ * 一个条目占用的块和空闲块都通过这种方式串联。空间或条数不足时按LRU淘汰，过期的条目在读取或淘汰时回收
+ */
+@Slf4j
+public class OffHeapStore {
+
+    /**
+     * 块的头部，保存下一块的序号
+     */
+    private static final int HEADER = 4;
+
+    private static final int NO_BLOCK = -1;
+
+    /**
+     * 块的最小大小
+     */
+    private static final int MIN_BLOCK_SIZE = 64;
+
+    private final Segment[] segments;
+
+    private final int blockSize;
+
+    private final RemovalListener removalListener;
+
+    /**
+     * @param capacity        总容量，单位字节
+     * @param maximumSize     最大条数，用于限制堆上索引的大小
+     * @param segmentCount    段数，会调整为2的幂，单段超过2GB时自动增加
+     * @param blockSize       块大小，单位字节
+     * @param file            内存映射文件的路径，为空时使用直接内存
+     * @param removalListener 条目移除的监听，覆盖写入不触发
+     * @throws IOException
+     */
+    public OffHeapStore(long capacity, long maximumSize, int segmentCount, int blockSize, String file,
+                        RemovalListener removalListener) throws IOException {
+        this.blockSize = Math.max(blockSize, MIN_BLOCK_SIZE);
+        this.removalListener = removalListener;
+        int count = 1;
+        while (count < segmentCount || capacity / count > Integer.MAX_VALUE - this.blockSize) {
+            count <<= 1;
+        }
+        int blocks = (int) Math.max(capacity / count / this.blockSize, 1);
+        long segmentBytes = (long) blocks * this.blockSize;
+        int maxEntries = (int) Math.min(Math.max(maximumSize / count, 1), Integer.MAX_VALUE);
+        this.segments = new Segment[count];
+        if (file == null || file.isEmpty()) {
+            for (int i = 0; i < count; i++) {
+                segments[i] = new Segment(ByteBuffer.allocateDirect((int) segmentBytes), blocks, maxEntries);
+            }
+        } else {
+            //映射文件只作为交换空间，每次启动重新创建，关闭通道不影响已映射的内存
+            Path path = Paths.get(file);
+            Files.deleteIfExists(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                for (int i = 0; i < count; i++) {
+                    segments[i] = new Segment(channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, segmentBytes),
+                            blocks, maxEntries);
+                }
+            }
+            path.toFile().deleteOnExit();
+        }
+        log.info("[CACHE OFFHEAP] - 堆外缓存初始化完成，{} - {}字节，段数 - {}，块大小 - {}",
+                file == null || file.isEmpty() ? "直接内存" : file, segmentBytes * count, count, this.blockSize);
+    }
+
+    /**
+     * 写入缓存值
+     *
+     * @param key
+     * @param bytes    序列化后的缓存值
+     * @param expireAt 过期的时间戳，单位毫秒，0表示永不过期
+     * @return 缓存值超过单段的容量时删除旧值并返回false
+     */
+    public boolean put(Object key, byte[] bytes, long expireAt) {
+        return segment(key).put(key, bytes, expireAt);
+    }
+
+    /**
+     * 读取缓存值
+     *
+     * @param key
+     * @return 不存在或已过期时返回null
+     */
+    public byte[] get(Object key) {
+        return segment(key).get(key);
+    }
+
+    /**
+     * 剩余过期时间
+     *
+     * @param key
+     * @return 单位毫秒，-1表示永不过期，-2表示不存在
+     */
+    public long getExpire(Object key) {
+        return segment(key).getExpire(key);
+    }
+
+    /**
+     * 判断key是否在缓存中，不影响LRU顺序
+     *
+     * @param key
+     * @return
+     */
+    public boolean containsKey(Object key) {
+        return segment(key).containsKey(key);
+    }
+
+    /**
+     * 删除缓存值
+     *
+     * @param key
+     */
+    public void remove(Object key) {
+        segment(key).remove(key);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 遍历未过期的缓存，每次只持有一个条目的锁，遍历期间的写入可能不会被遍历到
+     *
+     * @param consumer
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (Segment segment : segments) {
+            segment.forEach(consumer);
+        }
+    }
+
+    /**
+     * 条目数量
+     *
+     * @return
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 已占用的字节数，按块计算
+     *
+     * @return
+     */
+    public long usedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.usedBlocks();
+        }
+        return used * blockSize;
+    }
+
+    private Segment segment(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    /**
+     * 存储中的一段
+     */
+    private final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final ByteBuffer buffer;
+
+        private final int blocks;
+
+        private final int maxEntries;
+
+        /**
+         * 按访问顺序排列，最久未访问的条目在最前面
+         */
+        private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * 空闲链表的头部，回收的块放在这里
+         */
+        private int freeHead = NO_BLOCK;
+
+        /**
+         * 从未使用过的块的起始序号，按需分配，避免初始化时访问全部内存
+         */
+        private int unused;
+
+        private int usedBlocks;
+
+        private Segment(ByteBuffer buffer, int blocks, int maxEntries) {
+            this.buffer = buffer;
+            this.blocks = blocks;
+            this.maxEntries = maxEntries;
+        }
+
+        private boolean put(Object key, byte[] bytes, long expireAt) {
+            int needed = blocksFor(bytes.length);
+            if (needed > blocks) {
+                //旧值已经失效，不能继续保留
+                remove(key);
+                return false;
+            }
+            List<Object> evictedKeys = new ArrayList<>(0);
+            List<RemovalCause> evictedCauses = new ArrayList<>(0);
+            lock.lock();
+            try {
+                Entry old = entries.remove(key);
+                if (old != null) {
+                    release(old);
+                }
+                //空间或条数不足时从最久未访问的条目开始淘汰
+                Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+                while ((blocks - usedBlocks < needed || entries.size() >= maxEntries) && iterator.hasNext()) {
+                    Map.Entry<Object, Entry> eldest = iterator.next();
+                    iterator.remove();
+                    release(eldest.getValue());
+                    evictedKeys.add(eldest.getKey());
+                    evictedCauses.add(eldest.getValue().isExpired(System.currentTimeMillis()) ? RemovalCause.EXPIRED : RemovalCause.SIZE);
+                }
+                entries.put(key, new Entry(write(bytes, needed), bytes.length, expireAt));
+            } finally {
+                lock.unlock();
+            }
+            for (int i = 0; i < evictedKeys.size(); i++) {
+                removalListener.onRemoval(evictedKeys.get(i), evictedCauses.get(i));
+            }
+            return true;
+        }
+
+        private byte[] get(Object key) {
+            lock.lock();
+            try {
+                Entry entry = entries.get(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (!entry.isExpired(System.currentTimeMillis())) {
+                    return read(entry);
+                }
+                entries.remove(key);
+                release(entry);
+            } finally {
+                lock.unlock();
+            }
+            removalListener.onRemoval(key, RemovalCause.EXPIRED);
+            return null;
+        }
+
+        private long getExpire(Object key) {
+            lock.lock();
+            try {
+                Entry entry = entries.get(key);
+                long now = System.currentTimeMillis();
+                if (entry == null || entry.isExpired(now)) {
+                    return -2;
+                }
+                return entry.expireAt == 0 ? -1 : entry.expireAt - now;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean containsKey(Object key) {
+            lock.lock();
+            try {
+                //LinkedHashMap的containsKey不改变访问顺序
+                return entries.containsKey(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void remove(Object key) {
+            lock.lock();
+            try {
+                Entry entry = entries.remove(key);
+                if (entry == null) {
+                    return;
+                }
+                release(entry);
+            } finally {
+                lock.unlock();
+            }
+            removalListener.onRemoval(key, RemovalCause.EXPLICIT);
+        }
+
+        private void clear() {
+            List<Object> keys;
+            lock.lock();
+            try {
+                keys = new ArrayList<>(entries.keySet());
+                entries.values().forEach(entry -> entry.released = true);
+                entries.clear();
+                freeHead = NO_BLOCK;
+                unused = 0;
+                usedBlocks = 0;
+            } finally {
+                lock.unlock();
+            }
+            keys.forEach(key -> removalListener.onRemoval(key, RemovalCause.EXPLICIT));
+        }
+
+        private void forEach(EntryConsumer consumer) {
+            List<Map.Entry<Object, Entry>> snapshot;
+            lock.lock();
+            try {
+                snapshot = new ArrayList<>(entries.size());
+                for (Map.Entry<Object, Entry> entry : entries.entrySet()) {
+                    snapshot.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (Map.Entry<Object, Entry> item : snapshot) {
+                Entry entry = item.getValue();
+                byte[] bytes;
+                lock.lock();
+                try {
+                    //已被删除或覆盖的条目，块可能已经被其他条目使用
+                    if (entry.released || entry.isExpired(System.currentTimeMillis())) {
+                        continue;
+                    }
+                    bytes = read(entry);
+                } finally {
+                    lock.unlock();
+                }
+                consumer.accept(item.getKey(), bytes, entry.expireAt);
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int usedBlocks() {
+            return usedBlocks;
+        }
+
+        private int blocksFor(int length) {
+            int payload = blockSize - HEADER;
+            return Math.max((length + payload - 1) / payload, 1);
+        }
+
+        /**
+         * 分配块并写入数据，调用前需要确保有足够的空闲块
+         *
+         * @param bytes
+         * @param needed
+         * @return 首个块的序号
+         */
+        private int write(byte[] bytes, int needed) {
+            int payload = blockSize - HEADER;
+            int first = NO_BLOCK;
+            int previous = NO_BLOCK;
+            int offset = 0;
+            for (int i = 0; i < needed; i++) {
+                int block = allocate();
+                if (previous == NO_BLOCK) {
+                    first = block;
+                } else {
+                    buffer.putInt(previous * blockSize, block);
+                }
+                int length = Math.min(payload, bytes.length - offset);
+                buffer.position(block * blockSize + HEADER);
+                buffer.put(bytes, offset, length);
+                offset += length;
+                previous = block;
+            }
+            buffer.putInt(previous * blockSize, NO_BLOCK);
+            return first;
+        }
+
+        private byte[] read(Entry entry) {
+            int payload = blockSize - HEADER;
+            byte[] bytes = new byte[entry.length];
+            int offset = 0;
+            for (int block = entry.first; offset < bytes.length; block = buffer.getInt(block * blockSize)) {
+                int length = Math.min(payload, bytes.length - offset);
+                buffer.position(block * blockSize + HEADER);
+                buffer.get(bytes, offset, length);
+                offset += length;
+            }
+            return bytes;
+        }
+
+        private int allocate() {
+            usedBlocks++;
+            if (freeHead != NO_BLOCK) {
+                int block = freeHead;
+                freeHead = buffer.getInt(block * blockSize);
+                return block;
+            }
+            return unused++;
+        }
+
+        /**
+         * 把条目占用的块整体放回空闲链表
+         *
+         * @param entry
+         */
+        private void release(Entry entry) {
+            entry.released = true;
+            int last = entry.first;
+            int count = 1;
+            for (int next = buffer.getInt(last * blockSize); next != NO_BLOCK; next = buffer.getInt(last * blockSize)) {
+                last = next;
+                count++;
+            }
+            buffer.putInt(last * blockSize, freeHead);
+            freeHead = entry.first;
+            usedBlocks -= count;
+        }
+    }
+
+    /**
+     * 条目在堆上的位置信息
+     */
+    private static final class Entry {
+
+        private final int first;
+
+        private final int length;
+
+        private final long expireAt;
+
+        /**
+         * 块是否已经回收，由段的锁保护
+         */
+        private boolean released;
+
+        private Entry(int first, int length, long expireAt) {
+            this.first = first;
+            this.length = length;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expireAt != 0 && expireAt <= now;
+        }
+    }
+
+    /**
+     * 条目移除的原因
+     */
+    public enum RemovalCause {
+        //主动删除
+        EXPLICIT,
+        //过期
+        EXPIRED,
+        //空间或条数不足被淘汰
+        SIZE;
+
+        public boolean wasEvicted() {
+            return this != EXPLICIT;
+        }
+    }
+
+    /**
+     * 条目移除的监听，在段的锁之外调用
+     */
+    public interface RemovalListener {
+
+        void onRemoval(Object key, RemovalCause cause);
+    }
+
+    /**
+     * 缓存的遍历
+     */
+    public interface EntryConsumer {
+
+        /**
+         * @param key
+         * @param bytes    序列化后的缓存值
+         * @param expireAt 过期的时间戳，单位毫秒，0表示永不过期
+         */
+        void accept(Object key, byte[] bytes, long expireAt);
+    }
+}
@@ -0,0 +1,125 @@
+package com.jumper.common.cache.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 二级缓存值的Redis序列化
+ * <p>
+ * 格式为 魔数(1字节) + 序列化方式标识(1字节) + 标志位(1字节) + [压缩前长度(4字节)] + 数据，
+ * 序列化结果超过压缩阈值时使用LZ4压缩，压缩后没有变小则保留原始数据。
+ * 读取到格式或序列化方式不一致、以及无法反序列化的数据时返回null，按未命中处理
+ */
+@Slf4j
+public class CacheRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte MAGIC = (byte) 0xCA;
+
+    /**
+     * 标志位：数据经过LZ4压缩
+     */
+    private static final byte FLAG_LZ4 = 1;
+
+    private static final int HEADER_SIZE = 3;
+
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final CacheSerializer cacheSerializer;
+
+    /**
+     * 压缩阈值，单位字节，小于等于0时不压缩
+     */
+    private final int compressThreshold;
+
+    public CacheRedisSerializer(CacheSerializer cacheSerializer, int compressThreshold) {
+        this.cacheSerializer = cacheSerializer;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] data = cacheSerializer.serialize(value);
+        if (compressThreshold > 0 && data.length >= compressThreshold) {
+            byte[] compressed = compress(data);
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+        byte[] bytes = new byte[HEADER_SIZE + data.length];
+        writeHeader(bytes, (byte) 0);
+        System.arraycopy(data, 0, bytes, HEADER_SIZE, data.length);
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length < HEADER_SIZE || bytes[0] != MAGIC || bytes[1] != cacheSerializer.getId()) {
+            log.debug("[CACHE GET] - 缓存值的格式或序列化方式不一致，按未命中处理");
+            return null;
+        }
+        try {
+            if ((bytes[2] & FLAG_LZ4) != 0) {
+                int length = readInt(bytes, HEADER_SIZE);
+                byte[] data = new byte[length];
+                DECOMPRESSOR.decompress(bytes, HEADER_SIZE + 4, data, 0, length);
+                return cacheSerializer.deserialize(data, 0, length);
+            }
+            return cacheSerializer.deserialize(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+        } catch (RuntimeException e) {
+            log.warn("[CACHE GET] - 缓存值反序列化失败，按未命中处理", e);
+            return null;
+        }
+    }
+
+    /**
+     * 压缩数据
+     *
+     * @param data
+     * @return 压缩后没有变小时返回null
+     */
+    private byte[] compress(byte[] data) {
+        int offset = HEADER_SIZE + 4;
+        byte[] bytes = new byte[offset + COMPRESSOR.maxCompressedLength(data.length)];
+        int length = COMPRESSOR.compress(data, 0, data.length, bytes, offset);
+        if (offset + length >= HEADER_SIZE + data.length) {
+            return null;
+        }
+        writeHeader(bytes, FLAG_LZ4);
+        writeInt(bytes, HEADER_SIZE, data.length);
+        byte[] compressed = new byte[offset + length];
+        System.arraycopy(bytes, 0, compressed, 0, compressed.length);
+        return compressed;
+    }
+
+    private void writeHeader(byte[] bytes, byte flags) {
+        bytes[0] = MAGIC;
+        bytes[1] = cacheSerializer.getId();
+        bytes[2] = flags;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24
+                | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8
+                | (bytes[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,35 @@
+package com.jumper.common.cache.redis;
+
+/**
+ * 二级缓存值的序列化方式
+ * <p>
+ * 序列化结果会由CacheRedisSerializer加上头部（序列化方式的标识、是否压缩）后写入Redis，
+ * 可以通过注册同类型的Bean替换默认实现，标识需要与内置的实现区分开
+ */
+public interface CacheSerializer {
+
+    /**
+     * 序列化方式的标识，写入缓存值的头部，读取时标识不一致的缓存按未命中处理
+     *
+     * @return
+     */
+    byte getId();
+
+    /**
+     * 序列化
+     *
+     * @param value
+     * @return
+     */
+    byte[] serialize(Object value);
+
+    /**
+     * 反序列化
+     *
+     * @param bytes
+     * @param offset 数据的起始位置
+     * @param length 数据的长度
+     * @return
+     */
+    Object deserialize(byte[] bytes, int offset, int length);
+}
@@ -0,0 +1,42 @@
+package com.jumper.common.cache.redis;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * 基于JDK序列化的实现，缓存对象需要实现Serializable
+ */
+public class JdkCacheSerializer implements CacheSerializer {
+
+    public static final byte ID = 1;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(value);
+        } catch (IOException e) {
+            throw new SerializationException("缓存值序列化失败 - " + value.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, int offset, int length) {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+            return input.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new SerializationException("缓存值反序列化失败", e);
+        }
+    }
+}
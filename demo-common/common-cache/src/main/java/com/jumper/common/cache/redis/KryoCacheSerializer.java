@@ -0,0 +1,86 @@
+package com.jumper.common.cache.redis;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 基于Kryo的二进制序列化
+ * <p>
+ * 不要求注册类型，类名随数据一起写入；Kryo实例不是线程安全的，通过对象池复用。
+ * 缓存对象增删字段后旧数据可能无法反序列化，此时按未命中处理并重新加载
+ */
+public class KryoCacheSerializer implements CacheSerializer {
+
+    public static final byte ID = 2;
+
+    /**
+     * 序列化缓冲区的初始大小
+     */
+    private static final int BUFFER_SIZE = 512;
+
+    /**
+     * 池中缓冲区允许保留的最大大小，超出的缓冲区用完即丢弃
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    private final Pool<Kryo> kryoPool = new Pool<Kryo>(true, false, 64) {
+        @Override
+        protected Kryo create() {
+            Kryo kryo = new Kryo();
+            kryo.setRegistrationRequired(false);
+            kryo.setReferences(true);
+            //没有无参构造器的类直接创建实例
+            kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+            kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
+            return kryo;
+        }
+    };
+
+    private final Pool<Output> outputPool = new Pool<Output>(true, false, 64) {
+        @Override
+        protected Output create() {
+            return new Output(BUFFER_SIZE, -1);
+        }
+    };
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            output.reset();
+            kryo.writeClassAndObject(output, value);
+            return output.toBytes();
+        } catch (KryoException e) {
+            throw new SerializationException("缓存值序列化失败 - " + value.getClass().getName(), e);
+        } finally {
+            kryoPool.free(kryo);
+            if (output.getBuffer().length <= MAX_POOLED_BUFFER_SIZE) {
+                outputPool.free(output);
+            }
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, int offset, int length) {
+        Kryo kryo = kryoPool.obtain();
+        try {
+            return kryo.readClassAndObject(new Input(bytes, offset, length));
+        } catch (KryoException e) {
+            throw new SerializationException("缓存值反序列化失败", e);
+        } finally {
+            kryoPool.free(kryo);
+        }
+    }
+}
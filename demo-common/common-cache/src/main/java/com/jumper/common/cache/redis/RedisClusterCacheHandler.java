@@ -1,11 +1,37 @@
 package com.jumper.common.cache.redis;
 
+import com.jumper.common.cache.application.CacheConstact;
+import com.jumper.common.cache.application.CacheProperties;
+import com.jumper.common.cache.executor.CacheExecutor;
 import com.jumper.common.cache.handler.ClusterCacheHandler;
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.BatchResult;
+import org.redisson.api.RBatch;
+import org.redisson.api.RKeys;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import javax.annotation.PostConstruct;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -14,6 +40,7 @@ import java.util.concurrent.TimeUnit;
  * @param <K>
  * @param <V>
  */
+@Slf4j
 public class RedisClusterCacheHandler<K extends Serializable, V> extends ClusterCacheHandler<K, V> {
 
     /**
@@ -23,6 +50,36 @@ public class RedisClusterCacheHandler<K extends Serializable, V> extends Cluster
     private RedisTemplate redisTemplate;
     @Autowired
     private RedissonClient redissonClient;
+    @Autowired
+    private CacheProperties cacheProperties;
+    @Autowired
+    private CacheExecutor cacheExecutor;
+    @Autowired
+    private CacheMetrics cacheMetrics;
+    @Autowired
+    private CacheSerializer cacheSerializer;
+
+    /**
+     * RedisTemplate的连接是否为集群连接，未判断时为null
+     */
+    private volatile Boolean cluster;
+
+    /**
+     * 指定了序列化方式时，使用缓存独立的RedisTemplate，不影响注入的RedisTemplate
+     */
+    @PostConstruct
+    public void init() {
+        if (cacheProperties.getSerializer() == CacheConstact.Serializer.TEMPLATE) {
+            return;
+        }
+        RedisTemplate cacheRedisTemplate = new RedisTemplate();
+        cacheRedisTemplate.setConnectionFactory(redisTemplate.getRequiredConnectionFactory());
+        cacheRedisTemplate.setKeySerializer(StringRedisSerializer.UTF_8);
+        cacheRedisTemplate.setValueSerializer(new CacheRedisSerializer(cacheSerializer, cacheProperties.getCompressThreshold()));
+        cacheRedisTemplate.afterPropertiesSet();
+        this.redisTemplate = cacheRedisTemplate;
+        log.info("[CACHE] - 二级缓存使用 {} 序列化，压缩阈值 {} 字节", cacheProperties.getSerializer(), cacheProperties.getCompressThreshold());
+    }
 
     @Override
     public boolean putCache(K key, V value) {
@@ -38,25 +95,243 @@ public class RedisClusterCacheHandler<K extends Serializable, V> extends Cluster
         return true;
     }
 
+    /**
+     * 批量添加缓存，通过pipeline执行SET，集群模式下按slot分组后每组一次pipeline
+     *
+     * @param values
+     * @param timeOut
+     * @param unit
+     * @return
+     */
+    @Override
+    public boolean putAll(Map<K, V> values, Long timeOut, TimeUnit unit) {
+        for (List<K> keys : groupBySlot(values.keySet())) {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (K key : keys) {
+                        if (timeOut == -1) {
+                            operations.opsForValue().set(key, values.get(key));
+                        } else {
+                            operations.opsForValue().set(key, values.get(key), timeOut, unit);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        return true;
+    }
+
     @Override
     public V getCache(K key) {
         return (V) redisTemplate.opsForValue().get(key);
     }
 
+    /**
+     * 批量获取缓存，通过MGET读取，集群模式下按slot分组后每组一次MGET
+     *
+     * @param keys
+     * @return
+     */
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> values = new HashMap<>(keys.size() * 2);
+        for (List<K> slotKeys : groupBySlot(keys)) {
+            List<V> slotValues = redisTemplate.opsForValue().multiGet(slotKeys);
+            if (slotValues == null) {
+                continue;
+            }
+            for (int i = 0; i < slotKeys.size(); i++) {
+                if (slotValues.get(i) != null) {
+                    values.put(slotKeys.get(i), slotValues.get(i));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 按slot对key分组，非集群模式下不分组
+     * <p>
+     * slot按key序列化后的字节在本地计算，不访问Redis；是否集群以批量操作使用的RedisTemplate的连接为准
+     *
+     * @param keys
+     * @return
+     */
+    private Collection<List<K>> groupBySlot(Collection<K> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!isCluster()) {
+            return Collections.singletonList(new ArrayList<>(keys));
+        }
+        RedisSerializer keySerializer = redisTemplate.getKeySerializer();
+        Map<Integer, List<K>> slots = new HashMap<>();
+        for (K key : keys) {
+            slots.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(keySerializer.serialize(key)), slot -> new ArrayList<>()).add(key);
+        }
+        return slots.values();
+    }
+
+    /**
+     * RedisTemplate的连接是否为集群连接，第一次批量操作时判断
+     *
+     * @return
+     */
+    private boolean isCluster() {
+        Boolean current = cluster;
+        if (current == null) {
+            current = (Boolean) redisTemplate.execute((RedisCallback<Boolean>) connection -> connection instanceof RedisClusterConnection);
+            cluster = current;
+        }
+        return current;
+    }
+
+    @Override
+    public long getExpire(K key) {
+        Long expire = redisTemplate.getExpire(key, TimeUnit.MILLISECONDS);
+        return expire == null ? -2 : expire;
+    }
+
+    /**
+     * 批量获取剩余过期时间，集群模式下按slot分组后每组一次pipeline执行PTTL
+     *
+     * @param keys
+     * @return
+     */
+    @Override
+    public Map<K, Long> getExpireAll(Collection<K> keys) {
+        Map<K, Long> expires = new HashMap<>(keys.size() * 2);
+        RedisSerializer keySerializer = redisTemplate.getKeySerializer();
+        for (List<K> slotKeys : groupBySlot(keys)) {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (K key : slotKeys) {
+                    connection.pTtl(keySerializer.serialize(key));
+                }
+                return null;
+            });
+            for (int i = 0; i < slotKeys.size(); i++) {
+                Object expire = results.get(i);
+                expires.put(slotKeys.get(i), expire == null ? -2 : ((Number) expire).longValue());
+            }
+        }
+        return expires;
+    }
+
     @Override
     public boolean deleteCache(K key) {
         return redisTemplate.delete(key);
     }
 
+    @Override
+    public long getGeneration(String key) {
+        return redissonClient.getAtomicLong(key).get();
+    }
+
+    @Override
+    public long incrementGeneration(String key) {
+        return redissonClient.getAtomicLong(key).incrementAndGet();
+    }
+
     /**
-     * 通过正则表达式删除key
+     * 通过正则表达式异步删除key
+     * <p>
+     * 使用SCAN分批遍历（集群模式下遍历所有主节点），每批key按slot分组后通过pipeline执行UNLINK，
+     * 批次之间按配置的间隔暂停，避免大范围删除时影响Redis的其他请求。
+     * 只在缓存线程池中执行，线程池已满时返回失败的结果，不占用调用线程
      *
      * @param key
      * @return
      */
     @Override
-    public boolean deleteCachePattern(K key) {
-        redissonClient.getKeys().deleteByPatternAsync(String.valueOf(key));
-        return true;
+    public CompletableFuture<Long> deleteCachePatternAsync(K key) {
+        //以^开头的前缀表达式转换为glob，其余表达式按glob处理
+        String pattern = MemoryKeyIndex.toGlob(String.valueOf(key));
+        try {
+            //删除过程中会按间隔暂停，线程池已满时不能在调用线程中执行
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                long deleted = scanAndUnlink(pattern);
+                long cost = System.nanoTime() - start;
+                cacheMetrics.patternDelete(CacheMetrics.L2, cost, deleted);
+                log.debug("[CACHE DELETE] - 通过表达式 - {} 删除了 {} 个key，耗时 {}ms", pattern, deleted, TimeUnit.NANOSECONDS.toMillis(cost));
+                return deleted;
+            }, cacheExecutor.asExecutor());
+        } catch (RejectedExecutionException e) {
+            log.warn("[CACHE DELETE] - 缓存线程池已满，放弃二级缓存的表达式删除 - {}", pattern);
+            CompletableFuture<Long> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * 分批遍历并删除匹配的key，跳过缓存自身使用的key
+     *
+     * @param pattern
+     * @return 删除的key数量
+     */
+    private long scanAndUnlink(String pattern) {
+        int batchSize = cacheProperties.getPatternDeleteBatchSize();
+        String internalPrefix = cacheProperties.getKeyPrefix() + CacheConstact.INTERNAL_KEY_PREFIX;
+        RKeys keys = redissonClient.getKeys();
+        long deleted = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+        for (String cacheKey : keys.getKeysByPattern(pattern, batchSize)) {
+            //失效记录、热点key、命名空间版本号等不属于缓存数据
+            if (cacheKey.startsWith(internalPrefix)) {
+                continue;
+            }
+            batch.add(cacheKey);
+            if (batch.size() >= batchSize) {
+                deleted += unlink(batch);
+                batch.clear();
+                pause();
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleted += unlink(batch);
+        }
+        return deleted;
+    }
+
+    /**
+     * 按slot分组后通过pipeline删除一批key
+     *
+     * @param batch
+     * @return
+     */
+    private long unlink(List<String> batch) {
+        //SCAN返回的key按UTF-8编码，在本地计算slot
+        Map<Integer, List<String>> slots = new HashMap<>();
+        for (String cacheKey : batch) {
+            slots.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(cacheKey), slot -> new ArrayList<>()).add(cacheKey);
+        }
+        RBatch pipeline = redissonClient.createBatch();
+        for (List<String> slotKeys : slots.values()) {
+            pipeline.getKeys().unlinkAsync(slotKeys.toArray(new String[0]));
+        }
+        BatchResult<?> result = pipeline.execute();
+        long deleted = 0;
+        for (Object count : result.getResponses()) {
+            deleted += ((Number) count).longValue();
+        }
+        return deleted;
+    }
+
+    /**
+     * 批次之间暂停
+     */
+    private void pause() {
+        long interval = cacheProperties.getPatternDeleteInterval();
+        if (interval <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(interval);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
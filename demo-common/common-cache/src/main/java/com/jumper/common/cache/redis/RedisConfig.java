@@ -1,12 +1,31 @@
 package com.jumper.common.cache.redis;
 
+import com.jumper.common.cache.application.CacheConstact;
+import com.jumper.common.cache.application.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 @ConditionalOnProperty(prefix = "jumper.cache", value = "clusterType", havingValue = "REDIS", matchIfMissing = true)
 public class RedisConfig {
 
+    /**
+     * 二级缓存值的序列化方式，可以注册自定义实现替换
+     *
+     * @param cacheProperties
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public CacheSerializer getCacheSerializer(CacheProperties cacheProperties) {
+        if (cacheProperties.getSerializer() == CacheConstact.Serializer.JDK) {
+            return new JdkCacheSerializer();
+        }
+        return new KryoCacheSerializer();
+    }
+
    /* @Bean("cacheRedisProperties")
     @ConditionalOnBean
     public RedisProperties getRedisProperties(RedisProperties redisProperties){
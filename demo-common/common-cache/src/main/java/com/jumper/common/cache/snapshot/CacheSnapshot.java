@@ -0,0 +1,333 @@
+package com.jumper.common.cache.snapshot;
+
+import com.jumper.common.cache.executor.CacheExecutor;
+import com.jumper.common.cache.handler.MemoryCacheHandler;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import com.jumper.common.cache.redis.CacheSerializer;
+import com.jumper.common.cache.tracking.TrackingMemoryCacheHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.StreamMessageId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一级缓存的本地快照
+ * <p>
+ * 定时及停止时把一级缓存中未过期的数据连同过期时间写入内存映射文件，先写临时文件再原子替换；
+ * 启动后在缓存线程池中恢复：丢弃已过期的数据，并重放快照之后的失效记录，删除期间已经失效的key，
+ * 失效记录被裁剪、无法确认时放弃整个快照。恢复不阻塞启动，恢复期间写入的新数据不会被覆盖
+ */
+@Slf4j
+public class CacheSnapshot implements SmartInitializingSingleton, DisposableBean {
+
+    private static final int MAGIC = 0x4A43534E;
+
+    private static final byte VERSION = 1;
+
+    /**
+     * 内存映射文件的最大长度
+     */
+    private static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * 重放失效记录时多往前读取的时间，覆盖生成快照时还没有送达当前节点的失效消息，单位毫秒
+     */
+    private static final long REPLAY_MARGIN = 60000;
+
+    private final MemoryCacheHandler memoryCacheHandler;
+
+    private final InvalidationStream invalidationStream;
+
+    private final CacheSerializer cacheSerializer;
+
+    private final CacheExecutor cacheExecutor;
+
+    private final CacheMetrics cacheMetrics;
+
+    private final Path file;
+
+    private final long interval;
+
+    private volatile boolean running = true;
+
+    private Thread writer;
+
+    /**
+     * @param file     快照文件路径
+     * @param interval 定时写入快照的间隔，单位毫秒
+     */
+    public CacheSnapshot(MemoryCacheHandler memoryCacheHandler, InvalidationStream invalidationStream, CacheSerializer cacheSerializer,
+                         CacheExecutor cacheExecutor, CacheMetrics cacheMetrics, String file, long interval) {
+        this.memoryCacheHandler = memoryCacheHandler;
+        this.invalidationStream = invalidationStream;
+        this.cacheSerializer = cacheSerializer;
+        this.cacheExecutor = cacheExecutor;
+        this.cacheMetrics = cacheMetrics;
+        this.file = Paths.get(file);
+        this.interval = interval;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        //REDIS_TRACKING模式下恢复的数据没有在Redis中登记追踪，收不到失效通知，只写入不恢复
+        if (memoryCacheHandler instanceof TrackingMemoryCacheHandler) {
+            log.warn("[CACHE SNAPSHOT] - REDIS_TRACKING模式不支持恢复快照");
+        } else {
+            cacheExecutor.executeOrRun(() -> {
+                try {
+                    restore();
+                } catch (Exception e) {
+                    log.warn("[CACHE SNAPSHOT] - 恢复快照失败 - {}", file, e);
+                }
+            });
+        }
+        //恢复完成前写入的快照会丢失未恢复的数据，定时写入从一个间隔之后开始
+        writer = cacheExecutor.newThread("snapshot", this::runWriter);
+        writer.start();
+    }
+
+    /**
+     * 写入快照
+     * <p>
+     * 缓存数据逐条序列化后直接写入分段映射的文件，不在堆中保留全部数据；条数在写完后回填到文件头
+     *
+     * @throws IOException
+     */
+    public synchronized void write() throws IOException {
+        long start = System.nanoTime();
+        //先记录失效记录的位置再遍历缓存，之后的失效都会在恢复时重放
+        StreamMessageId lastId = invalidationStream.lastId();
+        byte[] id = lastId.toString().getBytes(StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis();
+        int countOffset = 4 + 1 + 1 + 8 + 2 + id.length;
+        int[] count = {0};
+        long size;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, countOffset + 4);
+            header.putInt(MAGIC).put(VERSION).put(cacheSerializer.getId()).putLong(now)
+                    .putShort((short) id.length).put(id).putInt(0);
+            ChunkedWriter chunks = new ChunkedWriter(channel, countOffset + 4);
+            try {
+                memoryCacheHandler.forEachEntry((key, value, expire) -> {
+                    byte[] keyBytes;
+                    byte[] valueBytes;
+                    try {
+                        keyBytes = String.valueOf(key).getBytes(StandardCharsets.UTF_8);
+                        valueBytes = cacheSerializer.serialize(value);
+                    } catch (Exception e) {
+                        log.debug("[CACHE SNAPSHOT] - 缓存值无法序列化，跳过 - {}", key);
+                        return;
+                    }
+                    int entrySize = 4 + keyBytes.length + 8 + 4 + valueBytes.length;
+                    if (chunks.size() + entrySize > MAX_SIZE) {
+                        return;
+                    }
+                    try {
+                        chunks.reserve(entrySize).putInt(keyBytes.length).put(keyBytes).putLong(expire == -1 ? -1 : now + expire)
+                                .putInt(valueBytes.length).put(valueBytes);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            size = chunks.finish();
+            header.putInt(countOffset, count[0]);
+            header.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long cost = System.nanoTime() - start;
+        cacheMetrics.snapshot("write", cost, count[0]);
+        log.info("[CACHE SNAPSHOT] - 写入快照 - {} 条，{} 字节，耗时 - {}ms", count[0], size, TimeUnit.NANOSECONDS.toMillis(cost));
+    }
+
+    /**
+     * 从快照恢复一级缓存
+     *
+     * @throws IOException
+     */
+    private void restore() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 4 + 1 + 1 + 8 + 2 || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                log.warn("[CACHE SNAPSHOT] - 快照格式不正确，放弃恢复 - {}", file);
+                return;
+            }
+            if (buffer.get() != cacheSerializer.getId()) {
+                log.warn("[CACHE SNAPSHOT] - 快照的序列化方式已变更，放弃恢复 - {}", file);
+                return;
+            }
+            long savedAt = buffer.getLong();
+            byte[] id = new byte[buffer.getShort()];
+            buffer.get(id);
+            StreamMessageId lastId = parse(new String(id, StandardCharsets.UTF_8));
+            StreamMessageId from = lastId.getId0() == 0 ? lastId
+                    : new StreamMessageId(Math.max(lastId.getId0() - REPLAY_MARGIN, 1), 0);
+            InvalidationStream.Replay replay = invalidationStream.read(from, lastId);
+            if (replay == null || replay.isDeleteAll()) {
+                log.warn("[CACHE SNAPSHOT] - 快照之后的失效记录不完整或清空过缓存，放弃恢复 - {}", file);
+                return;
+            }
+            int count = buffer.getInt();
+            long now = System.currentTimeMillis();
+            int restored = 0;
+            for (int i = 0; i < count; i++) {
+                byte[] keyBytes = new byte[buffer.getInt()];
+                buffer.get(keyBytes);
+                long expireAt = buffer.getLong();
+                int valueLength = buffer.getInt();
+                String key = new String(keyBytes, StandardCharsets.UTF_8);
+                //已过期、已失效或启动后已经重新写入的key不恢复
+                if ((expireAt != -1 && expireAt <= now) || replay.isInvalidated(key) || memoryCacheHandler.getCache(key) != null) {
+                    buffer.position(buffer.position() + valueLength);
+                    continue;
+                }
+                byte[] valueBytes = new byte[valueLength];
+                buffer.get(valueBytes);
+                Object value;
+                try {
+                    value = cacheSerializer.deserialize(valueBytes, 0, valueLength);
+                } catch (Exception e) {
+                    //类已经变更等原因无法反序列化，跳过
+                    log.debug("[CACHE SNAPSHOT] - 缓存值无法反序列化，跳过 - {}", key);
+                    continue;
+                }
+                if (expireAt == -1) {
+                    memoryCacheHandler.putCache(key, value);
+                } else {
+                    memoryCacheHandler.putCache(key, value, expireAt - now, TimeUnit.MILLISECONDS);
+                }
+                restored++;
+            }
+            //恢复期间新产生的失效记录再处理一次
+            InvalidationStream.Replay tail = invalidationStream.read(replay.getLastId(), replay.getLastId());
+            if (tail == null || tail.isDeleteAll()) {
+                memoryCacheHandler.deleteAll();
+            } else {
+                memoryCacheHandler.deleteCacheBatch(tail.getKeys());
+                tail.getPatterns().forEach(memoryCacheHandler::deleteCachePattern);
+            }
+            long cost = System.nanoTime() - start;
+            cacheMetrics.snapshot("restore", cost, restored);
+            log.info("[CACHE SNAPSHOT] - 恢复快照 - {}/{} 条，快照时间 - {}，耗时 - {}ms", restored, count, savedAt,
+                    TimeUnit.NANOSECONDS.toMillis(cost));
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(interval);
+                write();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.warn("[CACHE SNAPSHOT] - 写入快照失败 - {}", file, e);
+            }
+        }
+    }
+
+    private static StreamMessageId parse(String id) {
+        int index = id.indexOf('-');
+        return new StreamMessageId(Long.parseLong(id.substring(0, index)), Long.parseLong(id.substring(index + 1)));
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+        }
+        //停止前写入一次，同一节点上重启时使用
+        try {
+            write();
+        } catch (Exception e) {
+            log.warn("[CACHE SNAPSHOT] - 写入快照失败 - {}", file, e);
+        }
+    }
+
+    /**
+     * 按段映射文件顺序写入，当前段的剩余空间不足时从写入位置重新映射下一段，写完后截断多余的长度
+     */
+    private static final class ChunkedWriter {
+
+        /**
+         * 每段映射的长度
+         */
+        private static final long CHUNK_SIZE = 64L * 1024 * 1024;
+
+        private final FileChannel channel;
+
+        private MappedByteBuffer buffer;
+
+        /**
+         * 已写入的文件长度
+         */
+        private long position;
+
+        private ChunkedWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        /**
+         * 预留指定长度的空间
+         *
+         * @param length
+         * @return 写入位置已经指向预留空间的缓冲区
+         * @throws IOException
+         */
+        private ByteBuffer reserve(int length) throws IOException {
+            if (buffer == null || buffer.remaining() < length) {
+                if (buffer != null) {
+                    buffer.force();
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(CHUNK_SIZE, length));
+            }
+            position += length;
+            return buffer;
+        }
+
+        private long size() {
+            return position;
+        }
+
+        /**
+         * 刷盘并截断映射时多出的长度
+         *
+         * @return 文件长度
+         * @throws IOException
+         */
+        private long finish() throws IOException {
+            if (buffer != null) {
+                buffer.force();
+            }
+            channel.truncate(position);
+            return position;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.jumper.common.cache.snapshot;
+
+import com.jumper.common.cache.handler.MemoryKeyIndex;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RStream;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamMessageId;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一级缓存失效记录的Redis Stream
+ * <p>
+ * 每次发送集群失效消息时同时追加一条记录，按maxLen近似裁剪；
+ * 从快照恢复时重放快照之后的记录，删除快照中已经失效的key
+ */
+@Slf4j
+public class InvalidationStream {
+
+    private static final String KEYS = "keys";
+
+    private static final String PATTERNS = "patterns";
+
+    private static final String ALL = "all";
+
+    /**
+     * 多个key之间的分隔符
+     */
+    private static final String SEPARATOR = "\n";
+
+    /**
+     * 分页读取的数量
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    private final RStream<String, String> stream;
+
+    private final int maxLen;
+
+    public InvalidationStream(RedissonClient redissonClient, String name, int maxLen) {
+        this.stream = redissonClient.getStream(name, StringCodec.INSTANCE);
+        this.maxLen = maxLen;
+    }
+
+    /**
+     * 追加一条失效记录
+     *
+     * @param keys
+     * @param patterns
+     * @param deleteAll 是否清空全部缓存
+     */
+    public void append(Collection<String> keys, Collection<String> patterns, boolean deleteAll) {
+        Map<String, String> entry = new HashMap<>(4);
+        if (deleteAll) {
+            entry.put(ALL, "1");
+        }
+        if (keys != null && !keys.isEmpty()) {
+            entry.put(KEYS, String.join(SEPARATOR, keys));
+        }
+        if (patterns != null && !patterns.isEmpty()) {
+            entry.put(PATTERNS, String.join(SEPARATOR, patterns));
+        }
+        if (!entry.isEmpty()) {
+            stream.add(StreamAddArgs.entries(entry).trimNonStrict().maxLen(maxLen).noLimit());
+        }
+    }
+
+    /**
+     * 最后一条记录的id，没有记录时为0-0
+     *
+     * @return
+     */
+    public StreamMessageId lastId() {
+        Map<StreamMessageId, Map<String, String>> last = stream.rangeReversed(1, StreamMessageId.MAX, StreamMessageId.MIN);
+        return last.isEmpty() ? new StreamMessageId(0, 0) : last.keySet().iterator().next();
+    }
+
+    /**
+     * 读取from之后（包含from）的全部失效记录
+     *
+     * @param from       开始读取的位置
+     * @param checkpoint 需要连续的位置，该位置之后的记录必须完整
+     * @return checkpoint之后的记录可能已经被裁剪时返回null，无法确定哪些key失效
+     */
+    public Replay read(StreamMessageId from, StreamMessageId checkpoint) {
+        Map<StreamMessageId, Map<String, String>> first = stream.range(1, StreamMessageId.MIN, StreamMessageId.MAX);
+        boolean empty = first.isEmpty();
+        //checkpoint本身已经被裁剪，之后的记录也可能被裁剪过
+        if (checkpoint.getId0() > 0 && (empty || compare(first.keySet().iterator().next(), checkpoint) > 0)) {
+            return null;
+        }
+        if (checkpoint.getId0() == 0 && stream.size() >= maxLen) {
+            return null;
+        }
+        Replay replay = new Replay(from);
+        StreamMessageId start = from;
+        while (!empty) {
+            Map<StreamMessageId, Map<String, String>> page = stream.range(PAGE_SIZE, start, StreamMessageId.MAX);
+            for (Map.Entry<StreamMessageId, Map<String, String>> entry : page.entrySet()) {
+                replay.apply(entry.getKey(), entry.getValue());
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            StreamMessageId last = replay.lastId;
+            start = new StreamMessageId(last.getId0(), last.getId1() + 1);
+        }
+        return replay;
+    }
+
+    private static int compare(StreamMessageId a, StreamMessageId b) {
+        int result = Long.compare(a.getId0(), b.getId0());
+        return result != 0 ? result : Long.compare(a.getId1(), b.getId1());
+    }
+
+    /**
+     * 重放的失效记录
+     */
+    @Getter
+    public static class Replay {
+
+        private final Set<String> keys = new HashSet<>();
+
+        private final List<String> patterns = new ArrayList<>();
+
+        private boolean deleteAll;
+
+        /**
+         * 最后一条记录的id
+         */
+        private StreamMessageId lastId;
+
+        private Replay(StreamMessageId from) {
+            this.lastId = from;
+        }
+
+        private void apply(StreamMessageId id, Map<String, String> entry) {
+            lastId = id;
+            if (entry.containsKey(ALL)) {
+                deleteAll = true;
+            }
+            String keys = entry.get(KEYS);
+            if (keys != null) {
+                for (String key : keys.split(SEPARATOR)) {
+                    this.keys.add(key);
+                }
+            }
+            String patterns = entry.get(PATTERNS);
+            if (patterns != null) {
+                for (String pattern : patterns.split(SEPARATOR)) {
+                    this.patterns.add(pattern);
+                }
+            }
+        }
+
+        /**
+         * 判断key是否已经失效
+         *
+         * @param key
+         * @return
+         */
+        public boolean isInvalidated(String key) {
+            if (deleteAll || keys.contains(key)) {
+                return true;
+            }
+            for (String pattern : patterns) {
+                if (MemoryKeyIndex.matches(pattern, key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
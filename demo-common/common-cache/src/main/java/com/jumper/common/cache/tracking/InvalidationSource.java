@@ -0,0 +1,45 @@
+package com.jumper.common.cache.tracking;
+
+import java.util.List;
+
+/**
+ * 一级缓存的失效通知来源
+ * <p>
+ * 默认实现为Redis的CLIENT TRACKING广播模式，二级缓存中的key被修改时通知一级缓存删除，
+ * 可以注册自定义实现替换（例如测试时使用进程内的替身）
+ */
+public interface InvalidationSource {
+
+    /**
+     * 订阅指定前缀下key的修改
+     *
+     * @param prefixes key的前缀，为空时订阅全部key
+     * @param listener
+     */
+    void subscribe(List<String> prefixes, InvalidationListener listener);
+
+    /**
+     * 失效通知的监听
+     */
+    interface InvalidationListener {
+
+        /**
+         * key被修改或删除
+         *
+         * @param keys
+         */
+        void invalidate(List<String> keys);
+
+        /**
+         * 全部key失效，例如执行了FLUSHALL
+         */
+        void invalidateAll();
+
+        /**
+         * 订阅状态变化，未订阅期间的修改无法感知，不能使用一级缓存
+         *
+         * @param active
+         */
+        void tracking(boolean active);
+    }
+}
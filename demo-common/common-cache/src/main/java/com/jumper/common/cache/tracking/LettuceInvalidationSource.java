@@ -0,0 +1,123 @@
+package com.jumper.common.cache.tracking;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.protocol.ProtocolVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.net.SocketAddress;
+import java.util.List;
+
+/**
+ * 基于Lettuce的Redis客户端缓存失效通知
+ * <p>
+ * 使用一条独立的RESP3连接开启CLIENT TRACKING的BCAST模式，Redis在前缀下的key被修改时推送invalidate消息；
+ * 连接断开期间的消息会丢失，断开时停止使用一级缓存，重连后重新开启跟踪并清空一级缓存
+ */
+@Slf4j
+public class LettuceInvalidationSource implements InvalidationSource, DisposableBean {
+
+    private static final String INVALIDATE = "invalidate";
+
+    private final RedisURI redisURI;
+
+    private RedisClient redisClient;
+
+    private volatile StatefulRedisConnection<String, String> connection;
+
+    private List<String> prefixes;
+
+    private InvalidationListener listener;
+
+    public LettuceInvalidationSource(RedisURI redisURI) {
+        this.redisURI = redisURI;
+    }
+
+    @Override
+    public synchronized void subscribe(List<String> prefixes, InvalidationListener listener) {
+        if (redisClient != null) {
+            throw new IllegalStateException("LettuceInvalidationSource只支持一个订阅");
+        }
+        this.prefixes = prefixes;
+        this.listener = listener;
+        redisClient = RedisClient.create(redisURI);
+        redisClient.setOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP3).autoReconnect(true).build());
+        redisClient.addListener(new RedisConnectionStateListener() {
+            @Override
+            public void onRedisConnected(RedisChannelHandler<?, ?> channel, SocketAddress socketAddress) {
+                //首次连接在subscribe中开启跟踪，重连后需要重新开启
+                if (connection != null) {
+                    enableTracking();
+                }
+            }
+
+            @Override
+            public void onRedisDisconnected(RedisChannelHandler<?, ?> channel) {
+                log.warn("[CACHE TRACKING] - 失效通知连接断开，暂停使用一级缓存");
+                listener.tracking(false);
+            }
+
+            @Override
+            public void onRedisExceptionCaught(RedisChannelHandler<?, ?> channel, Throwable cause) {
+                log.warn("[CACHE TRACKING] - 失效通知连接异常", cause);
+            }
+        });
+        StatefulRedisConnection<String, String> connection = redisClient.connect();
+        connection.addListener(this::onPushMessage);
+        this.connection = connection;
+        enableTracking();
+    }
+
+    /**
+     * 开启跟踪，异步执行，不阻塞Lettuce的IO线程
+     */
+    private void enableTracking() {
+        TrackingArgs trackingArgs = TrackingArgs.Builder.enabled().bcast();
+        if (!prefixes.isEmpty()) {
+            trackingArgs.prefixes(prefixes.toArray(new String[0]));
+        }
+        connection.async().clientTracking(trackingArgs).whenComplete((result, e) -> {
+            if (e != null) {
+                log.warn("[CACHE TRACKING] - 开启CLIENT TRACKING失败，暂停使用一级缓存", e);
+                listener.tracking(false);
+                return;
+            }
+            log.info("[CACHE TRACKING] - 开启CLIENT TRACKING，前缀 - {}", prefixes);
+            //开启跟踪之前的修改无法感知，清空后再使用一级缓存
+            listener.invalidateAll();
+            listener.tracking(true);
+        });
+    }
+
+    private void onPushMessage(PushMessage message) {
+        if (!INVALIDATE.equals(message.getType())) {
+            return;
+        }
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        //FLUSHDB、FLUSHALL时推送的key为空
+        if (keys == null) {
+            listener.invalidateAll();
+        } else {
+            listener.invalidate((List<String>) keys);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (connection != null) {
+            connection.close();
+        }
+        if (redisClient != null) {
+            redisClient.shutdown();
+        }
+    }
+}
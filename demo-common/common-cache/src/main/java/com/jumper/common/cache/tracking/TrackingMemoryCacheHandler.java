@@ -0,0 +1,130 @@
+package com.jumper.common.cache.tracking;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jumper.common.cache.application.CacheProperties;
+import com.jumper.common.cache.caffeine.CaffeineMemoryCacheHandler;
+import com.jumper.common.cache.hotkey.HotKeyCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PostConstruct;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 由Redis保证一致性的JVM内存缓存策略
+ * <p>
+ * 在Caffeine一级缓存的基础上订阅二级缓存的失效通知，任何客户端修改了Redis中的key都会删除各节点的一级缓存，
+ * 不依赖消息队列。订阅未生效（启动中或连接断开）时不读写一级缓存，全部请求走二级缓存。
+ * <p>
+ * 读取二级缓存和写入一级缓存之间如果收到了该key的失效通知，说明读到的可能是旧值，
+ * 失效通知之后的一小段时间内不写入该key
+ */
+@Slf4j
+public class TrackingMemoryCacheHandler<K extends Serializable, V> extends CaffeineMemoryCacheHandler<K, V>
+        implements InvalidationSource.InvalidationListener {
+
+    /**
+     * 收到失效通知后不写入一级缓存的时间，单位毫秒
+     */
+    private static final long TOMBSTONE_MILLIS = 100;
+
+    @Autowired
+    private InvalidationSource invalidationSource;
+    @Autowired
+    private CacheProperties cacheProperties;
+    @Autowired(required = false)
+    private HotKeyCache hotKeyCache;
+
+    /**
+     * 最近收到失效通知的key
+     */
+    private final Cache<Object, Boolean> tombstones = Caffeine.newBuilder()
+            .expireAfterWrite(TOMBSTONE_MILLIS, TimeUnit.MILLISECONDS)
+            .maximumSize(100000)
+            .build();
+
+    private volatile boolean tracking;
+
+    @PostConstruct
+    public void subscribe() {
+        String keyPrefix = cacheProperties.getKeyPrefix();
+        //未配置统一前缀时订阅全部key，命名空间的版本号同样在统一前缀下
+        List<String> prefixes = keyPrefix.isEmpty() ? Collections.emptyList() : Collections.singletonList(keyPrefix);
+        invalidationSource.subscribe(prefixes, this);
+    }
+
+    @Override
+    public boolean putCache(K key, V value) {
+        return isWritable(key) && super.putCache(key, value);
+    }
+
+    @Override
+    public boolean putCache(K key, V value, Long timeOut, TimeUnit unit) {
+        return isWritable(key) && super.putCache(key, value, timeOut, unit);
+    }
+
+    @Override
+    public boolean putAll(Map<K, V> values, Long timeOut, TimeUnit unit) {
+        if (!tracking) {
+            return false;
+        }
+        Map<K, V> writable = new HashMap<>(values);
+        writable.keySet().removeIf(key -> tombstones.getIfPresent(key) != null);
+        return super.putAll(writable, timeOut, unit);
+    }
+
+    @Override
+    public V getCache(K key) {
+        return tracking ? super.getCache(key) : null;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        return tracking ? super.getAll(keys) : Collections.emptyMap();
+    }
+
+    @Override
+    public long getExpire(K key) {
+        return tracking ? super.getExpire(key) : -2;
+    }
+
+    @Override
+    public void invalidate(List<String> keys) {
+        for (String key : keys) {
+            tombstones.put(key, Boolean.TRUE);
+        }
+        super.deleteCacheBatch((Collection<K>) (Collection<?>) keys);
+        if (hotKeyCache != null) {
+            keys.forEach(hotKeyCache::remove);
+        }
+        log.debug("[CACHE TRACKING] - 收到失效通知 - {}", keys);
+    }
+
+    @Override
+    public void invalidateAll() {
+        super.deleteAll();
+        if (hotKeyCache != null) {
+            hotKeyCache.clear();
+        }
+        log.debug("[CACHE TRACKING] - 收到全部失效通知");
+    }
+
+    @Override
+    public void tracking(boolean active) {
+        if (!active) {
+            invalidateAll();
+        }
+        this.tracking = active;
+    }
+
+    private boolean isWritable(K key) {
+        return tracking && tombstones.getIfPresent(key) == null;
+    }
+}
@@ -0,0 +1,265 @@
+package com.jumper.common.cache.warmup;
+
+import com.jumper.common.cache.executor.CacheExecutor;
+import com.jumper.common.cache.handler.ClusterCacheHandler;
+import com.jumper.common.cache.handler.MemoryCacheHandler;
+import com.jumper.common.cache.hotkey.HotKeyCache;
+import com.jumper.common.cache.metrics.CacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.ScoredEntry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.support.NullValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 启动时的缓存预热
+ * <p>
+ * 运行期间定时把当前节点的热点key及频率累加到Redis中当前统计窗口的有序集合，停止时再写入一次，
+ * 窗口的长度为记录间隔，每个窗口的有序集合只保留最近几个窗口，不再访问的key随窗口过期；
+ * 启动时在ApplicationRunner中合并当前和上一个窗口，读取频率最高的topN个key，加上CacheWarmupLoader提供的key，
+ * 分批从二级缓存并行加载到一级缓存。ApplicationRunner执行完后应用才会进入ACCEPTING_TRAFFIC状态，
+ * 预热超过时间预算时放弃剩余的批次，不阻塞启动
+ */
+@Slf4j
+public class CacheWarmup implements ApplicationRunner, DisposableBean {
+
+    /**
+     * Redis中保留的统计窗口数量
+     */
+    private static final int HOT_KEYS_WINDOWS = 3;
+
+    private final MemoryCacheHandler memoryCacheHandler;
+
+    private final ClusterCacheHandler clusterCacheHandler;
+
+    private final HotKeyCache hotKeyCache;
+
+    private final RedissonClient redissonClient;
+
+    private final CacheExecutor cacheExecutor;
+
+    private final CacheMetrics cacheMetrics;
+
+    private final List<CacheWarmupLoader> loaders;
+
+    private final String hotKeysName;
+
+    private final int topN;
+
+    private final int batchSize;
+
+    private final long timeBudget;
+
+    private final long timeout;
+
+    private final long recordInterval;
+
+    private volatile boolean running = true;
+
+    /**
+     * 记录热点key的线程，没有开启热点key识别时为null
+     */
+    private final Thread recorder;
+
+    /**
+     * @param hotKeysName    记录热点key的有序集合名称
+     * @param topN           预热的热点key数量
+     * @param batchSize      每批从二级缓存加载的key数量
+     * @param timeBudget     预热的时间预算，单位毫秒
+     * @param timeout        预热数据在一级缓存中的过期时间，单位秒
+     * @param recordInterval 记录热点key的间隔，也是统计窗口的长度，单位毫秒
+     */
+    public CacheWarmup(MemoryCacheHandler memoryCacheHandler, ClusterCacheHandler clusterCacheHandler, HotKeyCache hotKeyCache,
+                       RedissonClient redissonClient, CacheExecutor cacheExecutor, CacheMetrics cacheMetrics, List<CacheWarmupLoader> loaders,
+                       String hotKeysName, int topN, int batchSize, long timeBudget, long timeout, long recordInterval) {
+        this.memoryCacheHandler = memoryCacheHandler;
+        this.clusterCacheHandler = clusterCacheHandler;
+        this.hotKeyCache = hotKeyCache;
+        this.redissonClient = redissonClient;
+        this.cacheExecutor = cacheExecutor;
+        this.cacheMetrics = cacheMetrics;
+        this.loaders = loaders;
+        this.hotKeysName = hotKeysName;
+        this.topN = topN;
+        this.batchSize = Math.max(batchSize, 1);
+        this.timeBudget = timeBudget;
+        this.timeout = timeout;
+        this.recordInterval = Math.max(recordInterval, 1);
+        if (hotKeyCache.isEnable()) {
+            this.recorder = cacheExecutor.newThread("hotkey-recorder", this::runRecorder);
+            this.recorder.start();
+        } else {
+            //没有热点key可以记录，只预热CacheWarmupLoader提供的key
+            log.warn("[CACHE WARMUP] - 开启了预热但未开启jumper.cache.hotKeyEnable，不记录和预热热点key");
+            this.recorder = null;
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeBudget);
+        Set<String> keys = new LinkedHashSet<>();
+        if (recorder != null) {
+            try {
+                keys.addAll(readHotKeys());
+            } catch (Exception e) {
+                log.warn("[CACHE WARMUP] - 读取热点key失败", e);
+            }
+        }
+        for (CacheWarmupLoader loader : loaders) {
+            try {
+                keys.addAll(loader.getKeys());
+            } catch (Exception e) {
+                log.warn("[CACHE WARMUP] - {} 获取预热key失败", loader.getClass().getName(), e);
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        //分批并行加载，超过时间预算的批次不再执行
+        AtomicLong loaded = new AtomicLong();
+        List<String> keyList = new ArrayList<>(keys);
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int i = 0; i < keyList.size(); i += batchSize) {
+            List<String> batch = keyList.subList(i, Math.min(i + batchSize, keyList.size()));
+            batches.add(CompletableFuture.runAsync(() -> {
+                if (System.nanoTime() < deadline) {
+                    loaded.addAndGet(load(batch));
+                }
+            }, cacheExecutor.asCallerRunsExecutor()));
+        }
+        try {
+            CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+                    .get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("[CACHE WARMUP] - 预热超过时间预算 - {}ms，放弃剩余的key", timeBudget);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("[CACHE WARMUP] - 预热失败", e);
+        }
+        long cost = System.nanoTime() - start;
+        cacheMetrics.warmup(cost, keys.size(), loaded.get());
+        log.info("[CACHE WARMUP] - 预热完成，key - {} 个，加载 - {} 个，耗时 - {}ms", keys.size(), loaded.get(), TimeUnit.NANOSECONDS.toMillis(cost));
+    }
+
+    /**
+     * 从二级缓存加载一批key到一级缓存，过期时间不超过二级缓存的剩余时间；
+     * 空值没有对应的nullTimeout，不预热，由首次访问时按注解的配置写入
+     *
+     * @param keys
+     * @return 加载的数量
+     */
+    private int load(List<String> keys) {
+        try {
+            Map<String, Object> values = clusterCacheHandler.getAll(keys);
+            values.values().removeIf(value -> value instanceof NullValue);
+            if (values.isEmpty()) {
+                return 0;
+            }
+            Map<String, Long> expires = clusterCacheHandler.getExpireAll(values.keySet());
+            long max = TimeUnit.SECONDS.toMillis(timeout);
+            int loaded = 0;
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                long expire = expires.getOrDefault(entry.getKey(), -2L);
+                //二级缓存中永不过期的key按预热的过期时间处理，已经过期的key不写入
+                expire = expire == -1 ? max : Math.min(expire, max);
+                if (expire > 0 && memoryCacheHandler.putCache(entry.getKey(), entry.getValue(), expire, TimeUnit.MILLISECONDS)) {
+                    loaded++;
+                }
+            }
+            return loaded;
+        } catch (Exception e) {
+            log.warn("[CACHE WARMUP] - 加载失败 - {}", keys, e);
+            return 0;
+        }
+    }
+
+    /**
+     * 把当前节点的热点key频率累加到当前窗口的有序集合，各节点的频率相加得到集群的热点key，只保留频率最高的topN个
+     */
+    private void record() {
+        Map<String, Integer> frequencies = hotKeyCache.getHotKeys();
+        if (frequencies.isEmpty()) {
+            return;
+        }
+        RScoredSortedSet<String> hotKeys = getHotKeys(currentWindow());
+        frequencies.forEach((key, frequency) -> hotKeys.addScore(key, frequency));
+        hotKeys.removeRangeByRank(0, -topN - 1);
+        hotKeys.expire(recordInterval * HOT_KEYS_WINDOWS, TimeUnit.MILLISECONDS);
+        log.debug("[CACHE WARMUP] - 记录热点key - {} 个", frequencies.size());
+    }
+
+    /**
+     * 合并当前和上一个窗口，读取频率最高的topN个key；当前窗口可能还没有完整的统计
+     *
+     * @return
+     */
+    private List<String> readHotKeys() {
+        long window = currentWindow();
+        Map<String, Double> scores = new HashMap<>();
+        for (long i = window - 1; i <= window; i++) {
+            for (ScoredEntry<String> entry : getHotKeys(i).entryRangeReversed(0, topN - 1)) {
+                scores.merge(entry.getValue(), entry.getScore(), Double::sum);
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(topN)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private long currentWindow() {
+        return System.currentTimeMillis() / recordInterval;
+    }
+
+    private void runRecorder() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(recordInterval);
+                record();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.warn("[CACHE WARMUP] - 记录热点key失败", e);
+            }
+        }
+    }
+
+    private RScoredSortedSet<String> getHotKeys(long window) {
+        return redissonClient.getScoredSortedSet(hotKeysName + ":" + window, StringCodec.INSTANCE);
+    }
+
+    @Override
+    public void destroy() {
+        if (recorder == null) {
+            return;
+        }
+        running = false;
+        recorder.interrupt();
+        //停止前记录一次，替换当前节点的新节点启动时使用
+        try {
+            record();
+        } catch (Exception e) {
+            log.warn("[CACHE WARMUP] - 记录热点key失败", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.jumper.common.cache.warmup;
+
+import java.util.Collection;
+
+/**
+ * 缓存预热的key来源
+ * <p>
+ * 注册为Bean后，启动时会把返回的key从二级缓存加载到一级缓存，
+ * key需要是完整的缓存key（包含keyPrefix及命名空间版本号）
+ */
+public interface CacheWarmupLoader {
+
+    /**
+     * 需要预热的key
+     *
+     * @return
+     */
+    Collection<String> getKeys();
+}